@@ -0,0 +1,420 @@
+package challenges.day19;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import aocutil.geometry.Coord3D;
+import aocutil.geometry.Rotation3D;
+
+/**
+ * Reconstructs a scanner array by first aligning every pair of scanners
+ * relative to each other and then fixing all scanners in the frame of the
+ * first one, following the alignments in breadth-first order.
+ *
+ * Candidate pairs are found through the fingerprints of the scanners: all
+ * pairwise beacon distances of all scanners are sorted together, so that
+ * only scanners that actually share distances are counted against each
+ * other instead of merging the fingerprints of every pair.
+ *
+ * The pairwise alignments do not depend on each other and are computed in
+ * parallel. To this end the beacons of every scanner are rotated into all
+ * orientations up front and stored as plain coordinate arrays, so that the
+ * alignment does not modify the scanners. The offsets between beacons are
+ * packed into longs and counted in an open addressing table, which stops
+ * as soon as one of them occurs often enough.
+ *
+ * Orientations are referred to by their index in the list of orientation
+ * matrices. The composition and inverse of orientations are determined once
+ * by rotating a probe coordinate.
+ *
+ * @author Joris
+ */
+public class PairwiseAligner {
+	/** The offset that is added to every offset component before packing it */
+	private static final long PACK_OFFSET = 1L << 20;
+	
+	/** The number of bits used to store the scanner index next to a distance */
+	private static final int SCANNER_BITS = 20;
+	
+	/** The scanners to align */
+	private final List<Scanner> scanners;
+	
+	/** The minimal number of shared beacons to align two scanners */
+	private final int shared;
+	
+	/** True to only align scanners that share enough fingerprints */
+	private final boolean prefilter;
+	
+	/** All orientations a scanner can have */
+	private final List<Rotation3D> orientations;
+	
+	/** The index of the identity orientation */
+	private final int identity;
+	
+	/** The orientation that equals rotating by a and then by b, as compose[a][b] */
+	private final int[][] compose;
+	
+	/** The inverse of every orientation */
+	private final int[] inverse;
+	
+	/** The beacons of every scanner per orientation, stored as x, y, z triples */
+	private final int[][][] beacons;
+	
+	/**
+	 * Creates a new aligner for the scanners
+	 *
+	 * @param scanners The scanners to align
+	 * @param shared The minimal number of beacons two scanners should share to
+	 *   align them
+	 * @param prefilter True to only align scanners that share enough
+	 *   fingerprints
+	 */
+	public PairwiseAligner( final List<Scanner> scanners, final int shared, final boolean prefilter ) {
+		this.scanners = scanners;
+		this.shared = shared;
+		this.prefilter = prefilter;
+		
+		this.orientations = new ArrayList<>( );
+		for( final Rotation3D R : Rotation3D.getOrientationMatrices( ) ) orientations.add( R );
+		final int O = orientations.size( );
+		
+		// determine the identity, composition and inverse of the orientations
+		// by their effect on a probe coordinate with distinct components
+		final Coord3D probe = new Coord3D( 1, 2, 3 );
+		final Coord3D[] rotated = new Coord3D[ O ];
+		for( int r = 0; r < O; r++ ) rotated[r] = probe.rotate( orientations.get( r ) );
+		this.identity = indexOf( rotated, probe );
+		this.compose = new int[ O ][ O ];
+		this.inverse = new int[ O ];
+		for( int a = 0; a < O; a++ )
+			for( int b = 0; b < O; b++ ) {
+				compose[a][b] = indexOf( rotated, rotated[a].rotate( orientations.get( b ) ) );
+				if( compose[a][b] == identity ) inverse[a] = b;
+			}
+		
+		// rotate the beacons of all scanners into every orientation
+		this.beacons = new int[ scanners.size( ) ][ O ][ ];
+		for( int s = 0; s < scanners.size( ); s++ ) {
+			final Coord3D[] b = scanners.get( s ).getBeaconsTransformed( false, false ).toArray( new Coord3D[ 0 ] );
+			for( int r = 0; r < O; r++ ) {
+				final int[] coords = new int[ b.length * 3 ];
+				for( int i = 0; i < b.length; i++ ) {
+					final Coord3D c = b[i].rotate( orientations.get( r ) );
+					coords[ 3 * i ] = c.x;
+					coords[ 3 * i + 1 ] = c.y;
+					coords[ 3 * i + 2 ] = c.z;
+				}
+				beacons[s][r] = coords;
+			}
+		}
+	}
+	
+	/**
+	 * Finds the index of the orientation that rotates the probe into the given
+	 * coordinate
+	 *
+	 * @param rotated The probe rotated by every orientation
+	 * @param c The coordinate to find
+	 * @return The index of the orientation
+	 */
+	private static int indexOf( final Coord3D[] rotated, final Coord3D c ) {
+		for( int r = 0; r < rotated.length; r++ )
+			if( rotated[r].equals( c ) ) return r;
+		throw new RuntimeException( "The orientation matrices are not closed under composition: " + c );
+	}
+	
+	/**
+	 * Aligns all pairs of scanners, using the given number of threads
+	 *
+	 * @param threads The number of threads
+	 * @return The list of alignments between pairs of scanners that share
+	 *   enough beacons
+	 */
+	public List<Alignment> alignAll( final int threads ) {
+		final int S = scanners.size( );
+		final List<List<Integer>> candidates = findCandidates( );
+		final ForkJoinPool pool = new ForkJoinPool( threads );
+		try {
+			// align every scanner against its candidates
+			final List<Future<List<Alignment>>> tasks = new ArrayList<>( S );
+			for( int i = 0; i < S; i++ ) {
+				final int ref = i;
+				tasks.add( pool.submit( ( ) -> alignAgainst( ref, candidates.get( ref ) ) ) );
+			}
+			
+			final List<Alignment> alignments = new ArrayList<>( );
+			for( final Future<List<Alignment>> f : tasks ) alignments.addAll( f.get( ) );
+			return alignments;
+		} catch( Exception e ) {
+			throw new RuntimeException( "Pairwise alignment failed", e );
+		} finally {
+			pool.shutdown( );
+		}
+	}
+	
+	/**
+	 * Determines for every scanner which scanners with a higher index may
+	 * share enough beacons with it to be aligned. Without the pre-filter these
+	 * are all of them, otherwise only the scanners that share at least
+	 * N * (N - 1) / 2 pairwise distances.
+	 *
+	 * @return The candidates per scanner
+	 */
+	private List<List<Integer>> findCandidates( ) {
+		final int S = scanners.size( );
+		final List<List<Integer>> candidates = new ArrayList<>( S );
+		for( int i = 0; i < S; i++ ) candidates.add( new ArrayList<>( ) );
+		if( !prefilter ) {
+			for( int i = 0; i < S; i++ )
+				for( int j = i + 1; j < S; j++ ) candidates.get( i ).add( j );
+			return candidates;
+		}
+		
+		// sort the distances of all scanners together, tagged with the scanner
+		int n = 0;
+		for( final Scanner s : scanners ) n += s.getFingerprint( ).length;
+		final long[] tagged = new long[ n ];
+		int idx = 0;
+		for( int s = 0; s < S; s++ )
+			for( final long d : scanners.get( s ).getFingerprint( ) ) tagged[ idx++ ] = (d << SCANNER_BITS) | s;
+		Arrays.sort( tagged );
+		
+		// count the distances that every pair of scanners has in common. A
+		// distance that occurs multiple times in a scanner is counted for every
+		// occurrence, which may overestimate but never underestimates the count
+		final Map<Long, Integer> common = new HashMap<>( );
+		final long mask = (1L << SCANNER_BITS) - 1;
+		for( int start = 0, end; start < n; start = end ) {
+			end = start + 1;
+			while( end < n && (tagged[ end ] >>> SCANNER_BITS) == (tagged[ start ] >>> SCANNER_BITS) ) end++;
+			
+			for( int a = start; a < end - 1; a++ )
+				for( int b = a + 1; b < end; b++ ) {
+					final long i = tagged[a] & mask, j = tagged[b] & mask;
+					if( i != j ) common.merge( i * S + j, 1, Integer::sum );
+				}
+		}
+		
+		final int minshared = shared * (shared - 1) / 2;
+		for( final Map.Entry<Long, Integer> e : common.entrySet( ) ) {
+			if( e.getValue( ) < minshared ) continue;
+			candidates.get( (int)(e.getKey( ) / S) ).add( (int)(e.getKey( ) % S) );
+		}
+		for( final List<Integer> c : candidates ) Collections.sort( c );
+		return candidates;
+	}
+	
+	/**
+	 * Aligns the candidate scanners against the reference scanner
+	 *
+	 * @param ref The index of the reference scanner
+	 * @param candidates The indices of the scanners to align
+	 * @return The alignments that were found
+	 */
+	private List<Alignment> alignAgainst( final int ref, final List<Integer> candidates ) {
+		final List<Alignment> result = new ArrayList<>( );
+		final OffsetCounter counter = new OffsetCounter( );
+		for( final int j : candidates ) {
+			final int[] a = beacons[ref][identity];
+			for( int r = 0; r < orientations.size( ); r++ ) {
+				// count the offsets between all beacons of both scanners until one
+				// of them occurs often enough
+				final int[] b = beacons[j][r];
+				counter.reset( (a.length / 3) * (b.length / 3) );
+				long offset = -1;
+				for( int p = 0; p < a.length && offset == -1; p += 3 )
+					for( int q = 0; q < b.length; q += 3 ) {
+						final long d = pack( a[p] - b[q], a[p + 1] - b[q + 1], a[p + 2] - b[q + 2] );
+						if( counter.increment( d ) >= shared ) {
+							offset = d;
+							break;
+						}
+					}
+				
+				if( offset != -1 ) {
+					result.add( new Alignment( ref, j, r, unpack( offset ) ) );
+					break;
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Fixes the position and rotation of all scanners relative to the first
+	 * scanner, by traversing the alignments in breadth-first order
+	 *
+	 * @param alignments The pairwise alignments
+	 * @param verbose True to report every scanner that is fixed
+	 */
+	public void fixScanners( final List<Alignment> alignments, final boolean verbose ) {
+		final int S = scanners.size( );
+		
+		// build the alignment graph with edges in both directions
+		final List<List<Alignment>> edges = new ArrayList<>( S );
+		for( int i = 0; i < S; i++ ) edges.add( new ArrayList<>( ) );
+		for( final Alignment A : alignments ) {
+			edges.get( A.ref ).add( A );
+			final int inv = inverse[ A.orientation ];
+			final Coord3D back = new Coord3D( -A.offset.x, -A.offset.y, -A.offset.z ).rotate( orientations.get( inv ) );
+			edges.get( A.scanner ).add( new Alignment( A.scanner, A.ref, inv, back ) );
+		}
+		
+		// the first scanner is the reference frame for all others
+		final int[] rotation = new int[ S ];
+		Arrays.fill( rotation, -1 );
+		rotation[0] = identity;
+		final Scanner s0 = scanners.get( 0 );
+		s0.setPosition( new Coord3D( 0, 0, 0 ) );
+		s0.setRotation( new Rotation3D( ) );
+		
+		final Deque<Integer> queue = new ArrayDeque<>( );
+		queue.add( 0 );
+		int fixed = 1;
+		while( !queue.isEmpty( ) ) {
+			final int i = queue.poll( );
+			final Scanner f = scanners.get( i );
+			final Rotation3D R = orientations.get( rotation[i] );
+			for( final Alignment A : edges.get( i ) ) {
+				if( rotation[ A.scanner ] != -1 ) continue;
+				
+				// move the alignment into the frame of the fixed scanner
+				final Scanner s = scanners.get( A.scanner );
+				rotation[ A.scanner ] = compose[ A.orientation ][ rotation[i] ];
+				s.setRotation( orientations.get( rotation[ A.scanner ] ) );
+				s.setPosition( f.getPosition( ).add( A.offset.rotate( R ) ) );
+				if( verbose ) System.out.println( "> Fixed " + s + " against " + f + " (position: " + s.getPosition( ) + ", rotation: " + s.getRotation( ) + ")" );
+				
+				fixed++;
+				queue.add( A.scanner );
+			}
+		}
+		
+		if( fixed < S ) throw new RuntimeException( "Failed to fix remaining scanners: " + (S - fixed) );
+	}
+	
+	/**
+	 * Packs an offset into a single long
+	 *
+	 * @param dx The x offset
+	 * @param dy The y offset
+	 * @param dz The z offset
+	 * @return The packed offset
+	 */
+	private static long pack( final int dx, final int dy, final int dz ) {
+		return ((dx + PACK_OFFSET) << 42) | ((dy + PACK_OFFSET) << 21) | (dz + PACK_OFFSET);
+	}
+	
+	/**
+	 * Unpacks an offset
+	 *
+	 * @param packed The packed offset
+	 * @return The offset
+	 */
+	private static Coord3D unpack( final long packed ) {
+		final long mask = (1L << 21) - 1;
+		return new Coord3D( (int)((packed >>> 42) - PACK_OFFSET), (int)(((packed >>> 21) & mask) - PACK_OFFSET), (int)((packed & mask) - PACK_OFFSET) );
+	}
+	
+	/**
+	 * Open addressing table that counts the occurrences of packed offsets. The
+	 * table is reused between pairs of scanners, entries of earlier uses are
+	 * recognised by their generation.
+	 */
+	private static class OffsetCounter {
+		/** The offset per slot */
+		private long[] keys = new long[ 0 ];
+		
+		/** The count per slot */
+		private int[] counts = new int[ 0 ];
+		
+		/** The generation in which the slot was last used */
+		private int[] used = new int[ 0 ];
+		
+		/** The current generation */
+		private int generation = 0;
+		
+		/** The bit mask to map a hash onto a slot */
+		private int mask;
+		
+		/**
+		 * Empties the table and makes sure it can hold the given number of
+		 * offsets
+		 *
+		 * @param n The number of offsets
+		 */
+		private void reset( final int n ) {
+			if( keys.length < 2 * n ) {
+				int size = 16;
+				while( size < 2 * n ) size <<= 1;
+				keys = new long[ size ];
+				counts = new int[ size ];
+				used = new int[ size ];
+				generation = 0;
+			}
+			mask = keys.length - 1;
+			generation++;
+		}
+		
+		/**
+		 * Increments the count of the offset
+		 *
+		 * @param key The packed offset
+		 * @return The new count
+		 */
+		private int increment( final long key ) {
+			final long h = key * 0x9E3779B97F4A7C15L;
+			int slot = (int)(h ^ (h >>> 32)) & mask;
+			while( used[ slot ] == generation ) {
+				if( keys[ slot ] == key ) return ++counts[ slot ];
+				slot = (slot + 1) & mask;
+			}
+			used[ slot ] = generation;
+			keys[ slot ] = key;
+			counts[ slot ] = 1;
+			return 1;
+		}
+	}
+	
+	/**
+	 * The alignment of a scanner relative to a reference scanner: a beacon
+	 * observed by the scanner is observed by the reference scanner at its
+	 * coordinate rotated by the orientation plus the offset
+	 */
+	public static class Alignment {
+		/** The index of the reference scanner */
+		public final int ref;
+		
+		/** The index of the aligned scanner */
+		public final int scanner;
+		
+		/** The index of the orientation of the scanner relative to the reference */
+		public final int orientation;
+		
+		/** The position of the scanner relative to the reference */
+		public final Coord3D offset;
+		
+		/**
+		 * Creates a new alignment
+		 *
+		 * @param ref The index of the reference scanner
+		 * @param scanner The index of the aligned scanner
+		 * @param orientation The orientation index
+		 * @param offset The relative position
+		 */
+		public Alignment( final int ref, final int scanner, final int orientation, final Coord3D offset ) {
+			this.ref = ref;
+			this.scanner = scanner;
+			this.orientation = orientation;
+			this.offset = offset;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package challenges.day19;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import aocutil.geometry.Coord3D;
+import aocutil.geometry.Rotation3D;
+import aocutil.io.FileReader;
+
+public class ReconstructionBenchmark {
+	
+	/** The numbers of scanners in the generated arrays */
+	private static final int[] SCANNERS = { 50, 100, 200, 400, 800 };
+	
+	/** The largest array to also reconstruct without the pre-filter */
+	private static final int MAX_UNFILTERED = 100;
+	
+	/** The range of a scanner per axis */
+	private static final int RANGE = 1000;
+	
+	/** The number of beacons shared between overlapping scanners */
+	private static final int SHARED = 12;
+	
+	/**
+	 * Compares the reconstruction of scanner arrays sequentially with and
+	 * without the fingerprint pre-filter and by parallel pairwise alignment, on
+	 * the real input and on generated arrays of increasing size
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		System.out.println( String.format( "%-20s %8s %8s %10s %10s %10s", "Input", "Scanners", "Beacons", "Filtered", "Unfiltered", "Pairwise" ) );
+		
+		final List<String> input = new FileReader( ReconstructionBenchmark.class.getResource( "day19_input.txt" ) ).readLineGroups( "\n" );
+		run( "day19_input.txt", input, -1, true );
+		
+		for( final int n : SCANNERS ) {
+			final List<Integer> expected = new ArrayList<>( 1 );
+			final List<String> generated = generate( n, new Random( n ), expected );
+			run( "generated", generated, expected.get( 0 ), n <= MAX_UNFILTERED );
+		}
+	}
+	
+	/**
+	 * Reconstructs the scanner array sequentially with and without pre-filter
+	 * and by pairwise alignment, and prints the results
+	 *
+	 * @param name The name of the input
+	 * @param input The scanner descriptions
+	 * @param expected The expected number of beacons, -1 if unknown
+	 * @param unfiltered True to also reconstruct without the pre-filter
+	 */
+	private static void run( final String name, final List<String> input, final int expected, final boolean unfiltered ) {
+		final long[] time = new long[ 3 ];
+		int beacons = -1;
+		for( int i = 0; i < 3; i++ ) {
+			if( i == 1 && !unfiltered ) continue;
+			
+			final ScannerArray array = ScannerArray.fromStringList( input );
+			array.setPrefilter( i != 1 );
+			array.setReconstructionMode( i == 2 ? ReconstructionMode.ParallelPairwise : ReconstructionMode.Sequential );
+			array.setVerbose( false );
+			
+			final long start = System.currentTimeMillis( );
+			array.reconstruct( SHARED );
+			time[i] = System.currentTimeMillis( ) - start;
+			
+			final int count = array.getBeacons( ).size( );
+			if( beacons == -1 ) beacons = count;
+			else if( count != beacons ) System.out.println( "!! Reconstructions disagree: " + count + " vs " + beacons );
+		}
+		if( expected != -1 && beacons != expected ) System.out.println( "!! Expected " + expected + " beacons, found " + beacons );
+		
+		System.out.println( String.format( "%-20s %8d %8d %8dms %10s %8dms", name, input.size( ), beacons, time[0], unfiltered ? time[1] + "ms" : "-", time[2] ) );
+	}
+	
+	/**
+	 * Generates a random scanner array. Every scanner is placed within range
+	 * of an earlier scanner and beacons are added until both observe at least
+	 * the number of shared beacons, so that the array can be reconstructed.
+	 *
+	 * @param n The number of scanners
+	 * @param rand The random generator to use
+	 * @param expected List to store the number of distinct beacons in
+	 * @return The scanner descriptions, one String per scanner
+	 */
+	private static List<String> generate( final int n, final Random rand, final List<Integer> expected ) {
+		// place the scanners in a random tree that branches off one of the last
+		// few scanners and moves on along the x axis, so that the density of the
+		// array does not grow with its size
+		final List<Coord3D> positions = new ArrayList<>( n );
+		positions.add( new Coord3D( 0, 0, 0 ) );
+		final List<Integer> parents = new ArrayList<>( n );
+		parents.add( -1 );
+		for( int i = 1; i < n; i++ ) {
+			final int parent = Math.max( 0, i - 1 - rand.nextInt( 4 ) );
+			final Coord3D p = positions.get( parent );
+			positions.add( new Coord3D( p.x + Math.abs( step( rand ) ), p.y + step( rand ), p.z + step( rand ) ) );
+			parents.add( parent );
+		}
+		
+		// scatter beacons around every scanner and make sure that it shares
+		// enough of them with its parent
+		final Set<Coord3D> beacons = new HashSet<>( );
+		for( int i = 0; i < n; i++ ) {
+			final Coord3D p = positions.get( i );
+			for( int b = 0; b < 12; b++ ) beacons.add( new Coord3D( p.x + rand.nextInt( 2 * RANGE + 1 ) - RANGE, p.y + rand.nextInt( 2 * RANGE + 1 ) - RANGE, p.z + rand.nextInt( 2 * RANGE + 1 ) - RANGE ) );
+			if( parents.get( i ) == -1 ) continue;
+			
+			final Coord3D q = positions.get( parents.get( i ) );
+			final int[] min = { Math.max( p.x, q.x ) - RANGE, Math.max( p.y, q.y ) - RANGE, Math.max( p.z, q.z ) - RANGE };
+			final int[] max = { Math.min( p.x, q.x ) + RANGE, Math.min( p.y, q.y ) + RANGE, Math.min( p.z, q.z ) + RANGE };
+			int shared = 0;
+			for( final Coord3D b : beacons ) if( inRange( b, p ) && inRange( b, q ) ) shared++;
+			for( ; shared < SHARED; shared++ ) {
+				beacons.add( new Coord3D( min[0] + rand.nextInt( max[0] - min[0] + 1 ), min[1] + rand.nextInt( max[1] - min[1] + 1 ), min[2] + rand.nextInt( max[2] - min[2] + 1 ) ) );
+			}
+		}
+		expected.add( beacons.size( ) );
+		
+		// describe the beacons within range of every scanner in its own, randomly
+		// rotated frame
+		final List<Rotation3D> orientations = new ArrayList<>( );
+		for( final Rotation3D R : Rotation3D.getOrientationMatrices( ) ) orientations.add( R );
+		final List<String> input = new ArrayList<>( n );
+		for( int i = 0; i < n; i++ ) {
+			final Coord3D p = positions.get( i );
+			final Rotation3D R = orientations.get( rand.nextInt( orientations.size( ) ) );
+			final StringBuilder sb = new StringBuilder( "--- scanner " + i + " ---" );
+			for( final Coord3D b : beacons ) {
+				if( !inRange( b, p ) ) continue;
+				final Coord3D c = new Coord3D( b.x - p.x, b.y - p.y, b.z - p.z ).rotate( R );
+				sb.append( "\n" + c.x + "," + c.y + "," + c.z );
+			}
+			input.add( sb.toString( ) );
+		}
+		return input;
+	}
+	
+	/**
+	 * Generates a random offset between a scanner and the next along one axis
+	 *
+	 * @param rand The random generator to use
+	 * @return The offset
+	 */
+	private static int step( final Random rand ) {
+		final int d = 400 + rand.nextInt( 800 );
+		return rand.nextBoolean( ) ? d : -d;
+	}
+	
+	/**
+	 * Checks if the beacon is within range of a scanner
+	 *
+	 * @param b The beacon
+	 * @param p The position of the scanner
+	 * @return True if the beacon is within range on every axis
+	 */
+	private static boolean inRange( final Coord3D b, final Coord3D p ) {
+		return Math.abs( b.x - p.x ) <= RANGE && Math.abs( b.y - p.y ) <= RANGE && Math.abs( b.z - p.z ) <= RANGE;
+	}
+}
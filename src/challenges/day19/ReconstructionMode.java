@@ -0,0 +1,14 @@
+package challenges.day19;
+
+/**
+ * The available strategies to reconstruct a scanner array
+ *
+ * @author Joris
+ */
+public enum ReconstructionMode {
+	/** Fixes one scanner at a time against the already fixed scanners, retrying the others until all are fixed */
+	Sequential,
+	
+	/** Aligns all pairs of scanners in parallel and fixes the scanners by a breadth-first search over the alignments */
+	ParallelPairwise;
+}
@@ -1,5 +1,6 @@
 package challenges.day19;
 
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
@@ -26,6 +27,9 @@ public class Scanner {
 	
 	/** The orientation of the scanner, as rotation per axis, if known */
 	protected Rotation3D rotation;
+	
+	/** The sorted squared distances between all pairs of observed beacons */
+	private long[] fingerprint;
 
 	/**
 	 * Creates a new Scanner with the given ID
@@ -98,6 +102,60 @@ public class Scanner {
 		return beacons.size( );
 	}
 	
+	/**
+	 * Returns the fingerprint of the scanner: the sorted squared distances
+	 * between all pairs of beacons it observes. The distances do not depend
+	 * on the position or rotation of the scanner, so scanners that share
+	 * beacons also share the distances between them.
+	 * 
+	 * @return The sorted squared pairwise distances
+	 */
+	public long[] getFingerprint( ) {
+		if( fingerprint != null ) return fingerprint;
+		
+		final Coord3D[] b = beacons.toArray( new Coord3D[ 0 ] );
+		final long[] fp = new long[ b.length * (b.length - 1) / 2 ];
+		int idx = 0;
+		for( int i = 0; i < b.length - 1; i++ )
+			for( int j = i + 1; j < b.length; j++ ) {
+				final long dx = b[i].x - b[j].x;
+				final long dy = b[i].y - b[j].y;
+				final long dz = b[i].z - b[j].z;
+				fp[ idx++ ] = dx * dx + dy * dy + dz * dz;
+			}
+		Arrays.sort( fp );
+		
+		fingerprint = fp;
+		return fingerprint;
+	}
+	
+	/**
+	 * Counts the pairwise distances that this scanner shares with another
+	 * scanner. If the scanners observe N of the same beacons, they share at
+	 * least N * (N - 1) / 2 distances.
+	 * 
+	 * @param other The other scanner
+	 * @return The number of pairwise distances that occur in both fingerprints
+	 */
+	public int sharedFingerprints( final Scanner other ) {
+		final long[] fp1 = getFingerprint( );
+		final long[] fp2 = other.getFingerprint( );
+		
+		// merge both sorted arrays and count the matches
+		int shared = 0;
+		int i = 0, j = 0;
+		while( i < fp1.length && j < fp2.length ) {
+			if( fp1[i] < fp2[j] ) i++;
+			else if( fp1[i] > fp2[j] ) j++;
+			else {
+				shared++;
+				i++;
+				j++;
+			}
+		}
+		return shared;
+	}
+	
 	
 	/**
 	 * Creates a scanner from a Strings that describe the index and the beacons
@@ -20,11 +20,67 @@ public class ScannerArray {
 	/** The array of scanners in this array */
 	protected List<Scanner> scanners;
 	
+	/** True to only test scanner pairs with enough shared fingerprints */
+	private boolean prefilter;
+	
+	/** The strategy used to reconstruct the array */
+	private ReconstructionMode mode;
+	
+	/** The number of threads used for the parallel pairwise reconstruction */
+	private int parallelism;
+	
+	/** True to report every scanner that is fixed during reconstruction */
+	private boolean verbose;
+	
 	/**
 	 * Creates a new empty ScannerArray
 	 */
 	private ScannerArray( ) {
 		this.scanners = new ArrayList<>( );
+		this.prefilter = true;
+		this.mode = ReconstructionMode.Sequential;
+		this.parallelism = Runtime.getRuntime( ).availableProcessors( );
+		this.verbose = true;
+	}
+	
+	/**
+	 * Sets/unsets verbose mode
+	 * 
+	 * @param v The new value for the verbose flag
+	 */
+	public void setVerbose( final boolean v ) {
+		this.verbose = v;
+	}
+	
+	/**
+	 * Enables or disables the fingerprint pre-filter. If enabled, only pairs of
+	 * scanners that share enough pairwise beacon distances are tested for all
+	 * rotations.
+	 * 
+	 * @param enabled True to enable the pre-filter
+	 */
+	public void setPrefilter( final boolean enabled ) {
+		this.prefilter = enabled;
+	}
+	
+	/**
+	 * Sets the strategy to reconstruct the array with
+	 * 
+	 * @param mode The reconstruction mode
+	 */
+	public void setReconstructionMode( final ReconstructionMode mode ) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Sets the number of threads that are used by the parallel pairwise
+	 * reconstruction
+	 * 
+	 * @param threads The number of threads
+	 */
+	public void setParallelism( final int threads ) {
+		if( threads < 1 ) throw new IllegalArgumentException( "The number of threads must be at least 1" );
+		this.parallelism = threads;
 	}
 		
 	/**
@@ -36,6 +92,32 @@ public class ScannerArray {
 	* @param N The beacon clustering size to compare observations over
 	*/
 	public void reconstruct( final int N ) {
+		switch( mode ) {
+			case Sequential: reconstructSequential( N ); break;
+			case ParallelPairwise: reconstructPairwise( N ); break;
+			default: throw new IllegalStateException( "Unsupported reconstruction mode: " + mode );
+		}
+	}
+	
+	/**
+	 * Reconstructs the scanner array by aligning all pairs of scanners in
+	 * parallel and then fixing the scanners by following the alignments from
+	 * the first scanner
+	 * 
+	 * @param N The beacon clustering size to compare observations over
+	 */
+	private void reconstructPairwise( final int N ) {
+		final PairwiseAligner aligner = new PairwiseAligner( scanners, N, prefilter );
+		aligner.fixScanners( aligner.alignAll( parallelism ), verbose );
+	}
+	
+	/**
+	 * Reconstructs the scanner array by fixing one scanner at a time against
+	 * the scanners that are already fixed
+	 * 
+	 * @param N The beacon clustering size to compare observations over
+	 */
+	private void reconstructSequential( final int N ) {
 		// now reconstruct scanner array from their cluster observations, add the
 		// first one as reference point for all others
 		final int NUM_SCANNERS = scanners.size( );
@@ -60,7 +142,7 @@ public class ScannerArray {
 			final Scanner fixAgainst = tryAndFixScanner( s, fixed, N );
 			if( fixAgainst != null ) {
 				// successfully fixated it!
-				System.out.println( "> Fixed " + s + " against " + fixAgainst + " (position: " + s.getPosition( ) + ", rotation: " + s.getRotation() + ")" );
+				if( verbose ) System.out.println( "> Fixed " + s + " against " + fixAgainst + " (position: " + s.getPosition( ) + ", rotation: " + s.getRotation() + ")" );
 				itercount = 0;
 				fixed.add( s );
 			}
@@ -77,16 +159,25 @@ public class ScannerArray {
 	 * @return The scanner against which it can be fixed, null otherwise
 	 */
 	private Scanner tryAndFixScanner( final Scanner s, final Set<Scanner> fixed, final int sharedbeacons ) {
+		// only consider the fixed scanners that share enough pairwise distances
+		// to possibly observe the same beacons
+		final int minshared = sharedbeacons * (sharedbeacons - 1) / 2;
+		final List<Scanner> candidates = new ArrayList<>( fixed.size( ) );
+		for( final Scanner f : fixed )
+			if( !prefilter || s.sharedFingerprints( f ) >= minshared ) candidates.add( f );
+		if( candidates.isEmpty( ) ) return null;
+		
 		for( final Rotation3D R : Rotation3D.getOrientationMatrices( ) ) {
 			// try a new orientation
 			s.setRotation( R );
+			final Set<Coord3D> rotated = s.getBeaconsTransformed( true, false );
 			
 			// check if the observations of this scanner overlaps with an already fixed one
-			for( final Scanner f : fixed ) {
+			for( final Scanner f : candidates ) {
 				// compare the observations between the fixed scanner and this one
 				final Map<Coord3D, Integer> diff = new HashMap<>( f.numObservations( ) * s.numObservations( ) );
 				for( final Coord3D c1 : f.getBeaconsTransformed( true, false ) )
-					for( final Coord3D c2 : s.getBeaconsTransformed( true, false ) ) {
+					for( final Coord3D c2 : rotated ) {
 						final Coord3D d = c1.diff( c2, false );
 						diff.put( d, diff.getOrDefault( d, 0 ) + 1 );
 					}
@@ -0,0 +1,207 @@
+package challenges.day22;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads a boot sequence from a stream one step at a time, e.g.
+ * on x=10..12,y=10..12,z=10..12
+ *
+ * The input is read through a fixed buffer and parsed byte by byte into the
+ * reusable fields of the reader, so that reading a step does not allocate
+ * any objects. Blank lines are skipped. The bounds returned by getMin( ) and
+ * getMax( ) are overwritten by the next call to next( ).
+ *
+ * @author Joris
+ */
+public class BootSequenceReader implements Closeable {
+	/** The size of the read buffer */
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	/** The stream to read from */
+	private final InputStream in;
+	
+	/** The read buffer */
+	private final byte[] buffer;
+	
+	/** The position of the next byte in the buffer and the number of bytes in it */
+	private int pos, limit;
+	
+	/** The current line number */
+	private long line;
+	
+	/** True if the current step turns the cubes on */
+	private boolean on;
+	
+	/** The minimal and maximal coordinates of the current step, per axis x, y, z */
+	private final int[] min, max;
+	
+	/**
+	 * Creates a new reader for the boot sequence in the stream
+	 *
+	 * @param in The stream to read from
+	 */
+	public BootSequenceReader( final InputStream in ) {
+		this.in = in;
+		this.buffer = new byte[ BUFFER_SIZE ];
+		this.pos = 0;
+		this.limit = 0;
+		this.line = 1;
+		this.min = new int[ 3 ];
+		this.max = new int[ 3 ];
+	}
+	
+	/**
+	 * Opens a reader for the boot sequence in the file
+	 *
+	 * @param path The path of the file
+	 * @return The reader
+	 * @throws IOException if the file cannot be opened
+	 */
+	public static BootSequenceReader open( final Path path ) throws IOException {
+		return new BootSequenceReader( Files.newInputStream( path ) );
+	}
+	
+	/**
+	 * Reads the next step of the sequence
+	 *
+	 * @return True if a step was read, false if the end of the stream is
+	 *   reached
+	 * @throws IOException if reading from the stream fails
+	 */
+	public boolean next( ) throws IOException {
+		// skip blank lines
+		int c = read( );
+		while( c == '\n' || c == '\r' || c == ' ' ) {
+			if( c == '\n' ) line++;
+			c = read( );
+		}
+		if( c == -1 ) return false;
+		
+		// on or off
+		if( c != 'o' ) throw invalid( "expected 'on' or 'off'" );
+		c = read( );
+		if( c == 'n' ) {
+			on = true;
+		} else if( c == 'f' && read( ) == 'f' ) {
+			on = false;
+		} else {
+			throw invalid( "expected 'on' or 'off'" );
+		}
+		expect( ' ' );
+		
+		// the ranges of the x, y and z axis
+		for( int a = 0; a < 3; a++ ) {
+			if( a > 0 ) expect( ',' );
+			expect( 'x' + a );
+			expect( '=' );
+			min[a] = readInt( );
+			expect( '.' );
+			expect( '.' );
+			max[a] = readInt( );
+		}
+		
+		// the end of the line
+		c = read( );
+		if( c == '\r' ) c = read( );
+		if( c == '\n' ) line++;
+		else if( c != -1 ) throw invalid( "expected end of line" );
+		return true;
+	}
+	
+	/** @return True if the current step turns the cubes on */
+	public boolean isOn( ) {
+		return on;
+	}
+	
+	/** @return The minimal coordinates of the current step, per axis */
+	public int[] getMin( ) {
+		return min;
+	}
+	
+	/** @return The maximal coordinates of the current step, per axis */
+	public int[] getMax( ) {
+		return max;
+	}
+	
+	/** @return The current line number */
+	public long getLine( ) {
+		return line;
+	}
+	
+	/**
+	 * Reads a signed integer
+	 *
+	 * @return The integer
+	 * @throws IOException if reading from the stream fails
+	 */
+	private int readInt( ) throws IOException {
+		int c = read( );
+		final boolean negative = c == '-';
+		if( negative ) c = read( );
+		if( c < '0' || c > '9' ) throw invalid( "expected a number" );
+		
+		long value = 0;
+		while( c >= '0' && c <= '9' ) {
+			value = value * 10 + (c - '0');
+			if( value > Integer.MAX_VALUE + 1L ) throw invalid( "number out of range" );
+			c = read( );
+		}
+		
+		// the number is terminated by the next character, put it back
+		if( c != -1 ) pos--;
+		
+		if( negative ) value = -value;
+		if( value > Integer.MAX_VALUE ) throw invalid( "number out of range" );
+		return (int)value;
+	}
+	
+	/**
+	 * Reads the next byte and checks that it is the expected one
+	 *
+	 * @param expected The expected character
+	 * @throws IOException if reading from the stream fails
+	 */
+	private void expect( final int expected ) throws IOException {
+		if( read( ) != expected ) throw invalid( "expected '" + (char)expected + "'" );
+	}
+	
+	/**
+	 * Reads the next byte from the buffer, refilling it when empty
+	 *
+	 * @return The byte or -1 at the end of the stream
+	 * @throws IOException if reading from the stream fails
+	 */
+	private int read( ) throws IOException {
+		if( pos == limit ) {
+			final int n = in.read( buffer, 0, buffer.length );
+			if( n <= 0 ) return -1;
+			pos = 0;
+			limit = n;
+		}
+		return buffer[ pos++ ] & 0xFF;
+	}
+	
+	/**
+	 * Creates the exception for invalid input on the current line
+	 *
+	 * @param reason The description of what is wrong
+	 * @return The exception
+	 */
+	private IllegalArgumentException invalid( final String reason ) {
+		return new IllegalArgumentException( "Invalid boot step on line " + line + ": " + reason );
+	}
+	
+	/**
+	 * Closes the underlying stream
+	 *
+	 * @throws IOException if closing the stream fails
+	 */
+	@Override
+	public void close( ) throws IOException {
+		in.close( );
+	}
+}
@@ -0,0 +1,61 @@
+package challenges.day22;
+
+/**
+ * A single step of the reactor boot sequence, i.e. a cuboid region of the
+ * reactor that is turned on or off. The bounds are inclusive.
+ * 
+ * @author Joris
+ */
+public class BootStep {
+	/** True if the step turns the cubes on */
+	public final boolean on;
+	
+	/** The minimal and maximal coordinates of the region, per axis x, y, z */
+	public final int[] min, max;
+	
+	/**
+	 * Creates a new boot step
+	 * 
+	 * @param on True to turn the cubes on, false to turn them off
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	public BootStep( final boolean on, final int[] min, final int[] max ) {
+		this.on = on;
+		this.min = min;
+		this.max = max;
+	}
+	
+	/** @return The number of cubes in the region of the step */
+	public long volume( ) {
+		long v = 1;
+		for( int a = 0; a < 3; a++ ) v *= (long)max[a] - min[a] + 1;
+		return v;
+	}
+	
+	/**
+	 * Creates a boot step from its description, e.g.
+	 * on x=10..12,y=10..12,z=10..12
+	 * 
+	 * @param input The boot step description
+	 * @return The boot step
+	 */
+	public static BootStep fromString( final String input ) {
+		final String[] s = input.split( " " );
+		final String[] axes = s[1].split( "," );
+		final int[] min = new int[ 3 ];
+		final int[] max = new int[ 3 ];
+		for( int a = 0; a < 3; a++ ) {
+			final String[] range = axes[a].substring( 2 ).split( "\\.\\." );
+			min[a] = Integer.parseInt( range[0] );
+			max[a] = Integer.parseInt( range[1] );
+		}
+		return new BootStep( s[0].equals( "on" ), min, max );
+	}
+	
+	/** @return The description of the boot step */
+	@Override
+	public String toString( ) {
+		return (on ? "on" : "off") + " x=" + min[0] + ".." + max[0] + ",y=" + min[1] + ".." + max[1] + ",z=" + min[2] + ".." + max[2];
+	}
+}
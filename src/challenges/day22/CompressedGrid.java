@@ -0,0 +1,164 @@
+package challenges.day22;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Counts the active cubes of a boot sequence using coordinate compression.
+ * The boundaries of all steps divide every axis into intervals, and every
+ * cell of the resulting grid is either completely on or completely off.
+ * 
+ * The grid is swept along the x axis one slab at a time. For every slab, the
+ * steps that cover it are painted in order onto a bit grid of (y, z) cells,
+ * so that the last step that covers a cell determines its state. The time is
+ * proportional to the total number of cells covered by the steps and the
+ * memory to a single slab, regardless of how the steps overlap.
+ * 
+ * @author Joris
+ */
+public class CompressedGrid {
+	/** The boot steps */
+	private final List<BootStep> steps;
+	
+	/** The compressed boundaries per axis */
+	private final long[][] bounds;
+	
+	/** The compressed index range per step and axis, from inclusive to exclusive */
+	private final int[][] from, to;
+	
+	/**
+	 * Creates a compressed grid for the boot sequence
+	 * 
+	 * @param steps The boot steps
+	 */
+	public CompressedGrid( final List<BootStep> steps ) {
+		this.steps = steps;
+		final int n = steps.size( );
+		
+		// collect the boundaries of every step, the upper bound is exclusive
+		bounds = new long[ 3 ][];
+		for( int a = 0; a < 3; a++ ) {
+			final long[] b = new long[ 2 * n ];
+			for( int i = 0; i < n; i++ ) {
+				b[ 2 * i ] = steps.get( i ).min[a];
+				b[ 2 * i + 1 ] = steps.get( i ).max[a] + 1L;
+			}
+			bounds[a] = unique( b );
+		}
+		
+		// map the step regions onto their compressed index ranges
+		from = new int[ n ][ 3 ];
+		to = new int[ n ][ 3 ];
+		for( int i = 0; i < n; i++ ) {
+			for( int a = 0; a < 3; a++ ) {
+				from[i][a] = Arrays.binarySearch( bounds[a], steps.get( i ).min[a] );
+				to[i][a] = Arrays.binarySearch( bounds[a], steps.get( i ).max[a] + 1L );
+			}
+		}
+	}
+	
+	/**
+	 * Sorts the values and removes duplicates
+	 * 
+	 * @param values The values
+	 * @return The sorted array of unique values
+	 */
+	private static long[] unique( final long[] values ) {
+		Arrays.sort( values );
+		int n = 0;
+		for( int i = 0; i < values.length; i++ )
+			if( n == 0 || values[i] != values[ n - 1 ] ) values[ n++ ] = values[i];
+		return Arrays.copyOf( values, n );
+	}
+	
+	/** @return The number of cells in the compressed grid */
+	public long getCellCount( ) {
+		long cells = 1;
+		for( int a = 0; a < 3; a++ ) cells *= Math.max( bounds[a].length - 1, 0 );
+		return cells;
+	}
+	
+	/**
+	 * Counts the number of cubes that are on after all steps
+	 * 
+	 * @return The number of active cubes
+	 */
+	public long countActive( ) {
+		if( steps.isEmpty( ) ) return 0;
+		
+		final int ny = bounds[1].length - 1;
+		final int nz = bounds[2].length - 1;
+		final int words = (nz + 63) >>> 6;
+		final long[] grid = new long[ ny * words ];
+		
+		long total = 0;
+		for( int x = 0; x < bounds[0].length - 1; x++ ) {
+			// paint all steps that cover this slab in order
+			Arrays.fill( grid, 0 );
+			boolean any = false;
+			for( int i = 0; i < from.length; i++ ) {
+				if( from[i][0] > x || to[i][0] <= x ) continue;
+				paint( grid, words, from[i], to[i], steps.get( i ).on );
+				any = true;
+			}
+			if( !any ) continue;
+			
+			total += (bounds[0][ x + 1 ] - bounds[0][x]) * area( grid, words );
+		}
+		return total;
+	}
+	
+	/**
+	 * Sets or clears the (y, z) cells of the step in the slab grid
+	 * 
+	 * @param grid The slab grid, one row of words per y interval
+	 * @param words The number of words per row
+	 * @param lo The lower compressed index per axis
+	 * @param hi The upper compressed index per axis, exclusive
+	 * @param on True to set the cells, false to clear them
+	 */
+	private static void paint( final long[] grid, final int words, final int[] lo, final int[] hi, final boolean on ) {
+		final int w0 = lo[2] >>> 6;
+		final int w1 = (hi[2] - 1) >>> 6;
+		final long first = -1L << (lo[2] & 63);
+		final long last = -1L >>> (63 - ((hi[2] - 1) & 63));
+		
+		for( int y = lo[1]; y < hi[1]; y++ ) {
+			final int row = y * words;
+			for( int w = w0; w <= w1; w++ ) {
+				long mask = -1L;
+				if( w == w0 ) mask &= first;
+				if( w == w1 ) mask &= last;
+				if( on ) grid[ row + w ] |= mask;
+				else grid[ row + w ] &= ~mask;
+			}
+		}
+	}
+	
+	/**
+	 * Determines the area of the set cells in the slab grid
+	 * 
+	 * @param grid The slab grid
+	 * @param words The number of words per row
+	 * @return The total area of all set cells
+	 */
+	private long area( final long[] grid, final int words ) {
+		final long[] ys = bounds[1];
+		final long[] zs = bounds[2];
+		
+		long area = 0;
+		for( int y = 0; y < ys.length - 1; y++ ) {
+			long length = 0;
+			for( int w = 0; w < words; w++ ) {
+				long bits = grid[ y * words + w ];
+				while( bits != 0 ) {
+					final int z = (w << 6) + Long.numberOfTrailingZeros( bits );
+					length += zs[ z + 1 ] - zs[z];
+					bits &= bits - 1;
+				}
+			}
+			area += (ys[ y + 1 ] - ys[y]) * length;
+		}
+		return area;
+	}
+}
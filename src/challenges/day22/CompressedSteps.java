@@ -0,0 +1,83 @@
+package challenges.day22;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * List of the boot steps that have been applied, in order. The active cubes
+ * are counted by compressing the step boundaries into a grid, which is only
+ * done when the count is requested.
+ *
+ * @author Joris
+ */
+public class CompressedSteps implements ReactorEngine {
+	/** The boot steps that have been applied, in order */
+	private final List<BootStep> steps;
+	
+	/** The number of active cubes, -1 if steps were added since it was counted */
+	private long compressed;
+	
+	/**
+	 * Creates a new, empty list of boot steps
+	 */
+	public CompressedSteps( ) {
+		this.steps = new ArrayList<>( );
+		this.compressed = -1;
+	}
+	
+	/**
+	 * Adds a boot step to the list, given by its bounds
+	 *
+	 * @param on True to turn the cubes on, false to turn them off
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	@Override
+	public void apply( final boolean on, final int[] min, final int[] max ) {
+		steps.add( new BootStep( on, min.clone( ), max.clone( ) ) );
+		compressed = -1;
+	}
+	
+	/** @return The number of active cubes, counted again only if steps were added */
+	@Override
+	public long volume( ) {
+		if( compressed == -1 ) compressed = new CompressedGrid( steps ).countActive( );
+		return compressed;
+	}
+	
+	/**
+	 * Counts the number of active cubes within a window by clipping all steps
+	 * to the window and compressing those
+	 *
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of active cubes within the window
+	 */
+	@Override
+	public long volume( final int[] min, final int[] max ) {
+		final List<BootStep> clipped = new ArrayList<>( );
+		for( final BootStep s : steps ) {
+			final int[] cmin = new int[ 3 ];
+			final int[] cmax = new int[ 3 ];
+			boolean overlaps = true;
+			for( int a = 0; a < 3; a++ ) {
+				cmin[a] = Math.max( s.min[a], min[a] );
+				cmax[a] = Math.min( s.max[a], max[a] );
+				overlaps &= cmin[a] <= cmax[a];
+			}
+			if( overlaps ) clipped.add( new BootStep( s.on, cmin, cmax ) );
+		}
+		return new CompressedGrid( clipped ).countActive( );
+	}
+	
+	/** @return The number of steps in the list */
+	public int size( ) {
+		return steps.size( );
+	}
+	
+	/** @return The boot steps */
+	@Override
+	public String toString( ) {
+		return steps.toString( );
+	}
+}
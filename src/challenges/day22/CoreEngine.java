@@ -0,0 +1,39 @@
+package challenges.day22;
+
+import java.util.function.Supplier;
+
+/**
+ * The available engines to determine the active cubes of the reactor core
+ *
+ * @author Joris
+ */
+public enum CoreEngine {
+	/** Keeps a set of disjoint active regions, splitting regions that overlap a new step */
+	RegionSplitting( RegionSet::new ),
+
+	/** Compresses the region boundaries into a grid and sweeps it slab by slab */
+	CoordinateCompression( CompressedSteps::new ),
+
+	/** Keeps a list of signed cuboids that add up to the active cubes by inclusion-exclusion */
+	InclusionExclusion( SignedCuboids::new ),
+
+	/** Splits regions like RegionSplitting, but finds the overlapping regions through a spatial index */
+	IndexedSplitting( RegionIndex::new );
+
+	/** Creates a new, empty instance of the engine */
+	private final Supplier<ReactorEngine> factory;
+
+	/**
+	 * Creates a new core engine
+	 *
+	 * @param factory The constructor of the engine implementation
+	 */
+	private CoreEngine( final Supplier<ReactorEngine> factory ) {
+		this.factory = factory;
+	}
+
+	/** @return A new engine without any active cubes */
+	public ReactorEngine create( ) {
+		return factory.get( );
+	}
+}
@@ -40,7 +40,22 @@ public class Day22 {
 	 *   result of completing the boot sequence
 	 */
 	public static long getActiveCubes( final List<String> input, final Cube3D bootregion ) {
-		final ReactorCore core = ReactorCore.fromBootingSequence( bootregion, input );
+		return getActiveCubes( input, bootregion, CoreEngine.RegionSplitting );
+	}
+	
+	/**
+	 * Initiates the boot sequence of the Submarine's reactor by feeding it the
+	 * list of boot instructions, using the specified engine
+	 * 
+	 * @param input The set of booting sequence instructions to turn reactor
+	 *   cubes on or off
+	 * @param bootregion The region to initiate the boot sequence within
+	 * @param engine The engine that determines the active cubes
+	 * @return The number of cubes that are now active in the reactor as a
+	 *   result of completing the boot sequence
+	 */
+	public static long getActiveCubes( final List<String> input, final Cube3D bootregion, final CoreEngine engine ) {
+		final ReactorCore core = ReactorCore.fromBootingSequence( bootregion, input, engine );
 		return core.getActivatedCubes( );
 	}
 }
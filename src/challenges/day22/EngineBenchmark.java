@@ -0,0 +1,39 @@
+package challenges.day22;
+
+import java.util.List;
+
+import aocutil.geometry.Cube3D;
+import aocutil.io.FileReader;
+
+public class EngineBenchmark {
+	
+	/**
+	 * Cross-checks the available reactor core engines on the example and real
+	 * inputs of day 22, both within the boot region and unbounded, and
+	 * compares their run time
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final String[] inputs = { "day22_example.txt", "day22_example2.txt", "day22_input.txt" };
+		
+		System.out.println( String.format( "%-20s %-8s %-22s %18s %8s", "Input", "Region", "Engine", "Active", "Time" ) );
+		for( final String file : inputs ) {
+			final List<String> input = new FileReader( EngineBenchmark.class.getResource( file ) ).readLines( );
+			for( final boolean bounded : new boolean[] { true, false } ) {
+				long expected = -1;
+				for( final CoreEngine engine : CoreEngine.values( ) ) {
+					final long start = System.currentTimeMillis( );
+					final long active = Day22.getActiveCubes( input, bounded ? new Cube3D( 50 ) : null, engine );
+					final long time = System.currentTimeMillis( ) - start;
+					System.out.println( String.format( "%-20s %-8s %-22s %18d %6dms", file, bounded ? "boot" : "all", engine, active, time ) );
+					
+					// all engines should agree
+					if( expected == -1 ) expected = active;
+					else if( active != expected ) System.out.println( "!! Engine " + engine + " disagrees: " + active + " vs " + expected );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package challenges.day22;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class IndexBenchmark {
+	
+	/** The numbers of random boot steps to generate */
+	private static final int[] STEPS = { 1000, 2000, 4000, 8000, 16000, 32000, 64000 };
+	
+	/** The largest number of steps to also run the unindexed region splitting on */
+	private static final int MAX_UNINDEXED = 4000;
+	
+	/** The maximal size of a step region per axis */
+	private static final int SIZE = 30000;
+	
+	/**
+	 * Measures how the indexed region splitting engine scales with the number
+	 * of regions, using random boot sequences of increasing length. The space
+	 * grows with the number of steps so that the density of the steps stays
+	 * the same and the number of disjoint regions reaches the 10^5 range. For
+	 * the shorter sequences the result and run time are compared to the
+	 * unindexed region splitting.
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		System.out.println( String.format( "%-8s %10s %8s %10s %10s %20s", "Steps", "Regions", "Height", "Indexed", "Unindexed", "Active" ) );
+		for( final int n : STEPS ) {
+			final List<String> input = generate( n, (int)(100000 * Math.cbrt( n / 1000.0 )), new Random( n ) );
+			
+			// apply the steps directly to an index to also report its size
+			final long start = System.currentTimeMillis( );
+			final RegionIndex index = new RegionIndex( );
+			for( final String s : input ) index.apply( BootStep.fromString( s ) );
+			final long indexed = System.currentTimeMillis( ) - start;
+			
+			String unindexed = "-";
+			if( n <= MAX_UNINDEXED ) {
+				final long ustart = System.currentTimeMillis( );
+				final long active = Day22.getActiveCubes( input, null, CoreEngine.RegionSplitting );
+				unindexed = (System.currentTimeMillis( ) - ustart) + "ms";
+				if( active != index.volume( ) ) System.out.println( "!! Indexed splitting disagrees: " + index.volume( ) + " vs " + active );
+			}
+			
+			System.out.println( String.format( "%-8d %10d %8d %8dms %10s %20d", n, index.size( ), index.getHeight( ), indexed, unindexed, index.volume( ) ) );
+		}
+	}
+	
+	/**
+	 * Generates a random boot sequence of which one in four steps turns cubes
+	 * off
+	 *
+	 * @param n The number of steps
+	 * @param span The maximal absolute coordinate of a region's minimum
+	 * @param rand The random generator to use
+	 * @return The boot sequence
+	 */
+	private static List<String> generate( final int n, final int span, final Random rand ) {
+		final List<String> input = new ArrayList<>( n );
+		final String[] axes = { "x", "y", "z" };
+		for( int i = 0; i < n; i++ ) {
+			final StringBuilder sb = new StringBuilder( rand.nextInt( 4 ) == 0 ? "off " : "on " );
+			for( int a = 0; a < 3; a++ ) {
+				final int min = rand.nextInt( 2 * span ) - span;
+				sb.append( (a > 0 ? "," : "") + axes[a] + "=" + min + ".." + (min + rand.nextInt( SIZE ) + 1) );
+			}
+			input.add( sb.toString( ) );
+		}
+		return input;
+	}
+}
@@ -1,67 +1,125 @@
 package challenges.day22;
 
-import java.util.HashSet;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
 import java.util.List;
-import java.util.Set;
 
 import aocutil.geometry.Cube3D;
 
 /**
  * Class that models the submarine reactor's Core, consisting of cubes in a
- * three-dimensional integer space that may be activated or not. 
+ * three-dimensional integer space that may be activated or not. The active
+ * cubes are determined by one of the available core engines.
+ * 
+ * The inclusion-exclusion engine scans its cuboids in parallel once there are
+ * many of them, the core should be closed to release these threads.
  *  
  * @author Joris
  */
-public class ReactorCore {
-	/** The map that contains the regions of cubes that are on  */
-	private Set<Cube3D> regions;
+public class ReactorCore implements Closeable {
+	/** The type of engine that determines the active cubes */
+	private final CoreEngine engine;
+	
+	/** The engine that keeps track of the active cubes */
+	private final ReactorEngine active;
 	
 	/**
 	 * Creates a new reactor core
+	 * 
+	 * @param engine The engine that determines the active cubes
+	 */
+	private ReactorCore( final CoreEngine engine ) {
+		this.engine = engine;
+		this.active = engine.create( );
+	}
+	
+	/**
+	 * Reads the next step of the boot sequence and applies it, so that the
+	 * number of activated cubes can be followed while booting
+	 * 
+	 * @param reader The reader of the boot sequence
+	 * @return True if a step was read, false if the sequence has ended
+	 * @throws IOException if reading the sequence fails
 	 */
-	private ReactorCore( ) {
-		this.regions = new HashSet<>( );
+	public boolean boot( final BootSequenceReader reader ) throws IOException {
+		return boot( reader, null, null );
 	}
 	
 	/**
-	 * Turns on the cubes in the specified region to on or off
+	 * Reads the next step of the boot sequence and applies it if it overlaps
+	 * the boot region, otherwise the step is discarded
 	 * 
-	 * @param region The region to set value of
-	 * @param value True to activate the cubes in the area, false to deactivate
+	 * @param reader The reader of the boot sequence
+	 * @param bootmin The minimal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @param bootmax The maximal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @return True if a step was read, false if the sequence has ended
+	 * @throws IOException if reading the sequence fails
 	 */
-	private void set( final Cube3D region, final boolean value ) {
-		// reconstruct set of active cubes
-		final Set<Cube3D> newset = new HashSet<>( );
+	public boolean boot( final BootSequenceReader reader, final int[] bootmin, final int[] bootmax ) throws IOException {
+		if( !reader.next( ) ) return false;
 		
-		// check with all existing regions if they overlap and make sure to keep
-		// only non-overlapping areas
-		for( final Cube3D cube : regions ) {
-			if( !region.overlaps( cube ) )
-				// no overlap means no change 
-				newset.add( cube );
-			else
-				// if they do overlap, remove the new region from the cube and add
-				// the result of the subtraction to the set
-				newset.addAll( cube.subtract( region ) );
-		}		
+		// check if the region is within the boot region, otherwise discard it
+		final int[] min = reader.getMin( );
+		final int[] max = reader.getMax( );
+		if( bootmin != null ) {
+			for( int a = 0; a < 3; a++ )
+				if( max[a] < bootmin[a] || min[a] > bootmax[a] ) return true;
+		}
 		
-		// if the region should active cubes add it and swap the sets
-		if( value ) newset.add( region );		
-		regions = newset;
+		active.apply( reader.isOn( ), min, max );
+		return true;
 	}
 	
 	/**
-	 * Counts the number of set cubes int the specified region
+	 * Counts the number of activated cubes. All engines but coordinate
+	 * compression keep this count up to date while the steps are applied, so
+	 * it can be polled cheaply during the boot sequence.
 	 * 
-	 * @param region The region to consider 
-	 * @return The number of activated cubes in the given region 
+	 * @return The number of activated cubes in the reactor core
 	 */
 	public long getActivatedCubes( ) {
-		long count = 0;
-		for( final Cube3D c : regions ) {
-			count += c.volume( );
-		}
-		return count;
+		return active.volume( );
+	}
+	
+	/**
+	 * Counts the number of activated cubes within a window of the reactor.
+	 * The indexed splitting engine only visits the index nodes on the boundary
+	 * of the window, the other engines scan all of their regions.
+	 * 
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of activated cubes within the window
+	 */
+	public long getActivatedCubes( final int[] min, final int[] max ) {
+		return active.volume( min, max );
+	}
+	
+	/** @return The engine that determines the active cubes */
+	public CoreEngine getEngine( ) {
+		return engine;
+	}
+	
+	/**
+	 * Sets the number of threads that the inclusion-exclusion engine scans its
+	 * cuboids with, the other engines always run on the calling thread
+	 * 
+	 * @param threads The number of threads, 1 to always scan sequentially
+	 */
+	public void setParallelism( final int threads ) {
+		active.setParallelism( threads );
+	}
+	
+	/**
+	 * Releases the threads used for parallel scans. The core remains usable,
+	 * the threads are started again when they are needed.
+	 */
+	@Override
+	public void close( ) {
+		active.close( );
 	}
 
 	/**
@@ -69,32 +127,102 @@ public class ReactorCore {
 	 */
 	@Override
 	public String toString( ) {
-		return regions.toString( );
+		return active.toString( );
 	}
 
 	/**
-	 * Creates a new reactor core from a booting sequence
+	 * Creates a new reactor core from a booting sequence, using the region
+	 * splitting engine
 	 * 
 	 * @param bootregion The boot region, null for unbounded
 	 * @param sequence The list of boot instructions
 	 * @return The reactor core
 	 */
 	public static ReactorCore fromBootingSequence( final Cube3D bootregion, final List<String> sequence ) {
-		final ReactorCore r = new ReactorCore( );
+		return fromBootingSequence( bootregion, sequence, CoreEngine.RegionSplitting );
+	}
+	
+	/**
+	 * Creates a new reactor core from a booting sequence
+	 * 
+	 * @param bootregion The boot region, null for unbounded
+	 * @param sequence The list of boot instructions
+	 * @param engine The engine that determines the active cubes
+	 * @return The reactor core
+	 */
+	public static ReactorCore fromBootingSequence( final Cube3D bootregion, final List<String> sequence, final CoreEngine engine ) {
+		final ReactorCore r = new ReactorCore( engine );
 		
 		// parse sequence of instructions
 		for( final String seq : sequence ) {
-			final String[] s = seq.split( " " );
-			final boolean on = s[0].equals( "on" );
-			final Cube3D region = Cube3D.fromString( s[1] );
+			final BootStep step = BootStep.fromString( seq );
 			
 			// check if the region is within the boot region, otherwise discard it
-			if( bootregion != null && !region.overlaps( bootregion ) ) continue;
-						
+			if( bootregion != null && !Cube3D.fromString( seq.split( " " )[1] ).overlaps( bootregion ) ) continue;
+			
 			// and apply the instruction
-			r.set( region, on );
+			r.active.apply( step.on, step.min, step.max );
 		}
 		
+		// release the threads of the parallel scans
+		r.close( );
+		
 		return r;
 	}
+	
+	/**
+	 * Creates a new, empty reactor core to which the steps of a boot sequence
+	 * can be applied one at a time using boot( ). Close the core when booting
+	 * has completed.
+	 * 
+	 * @param engine The engine that determines the active cubes
+	 * @return The reactor core
+	 */
+	public static ReactorCore create( final CoreEngine engine ) {
+		return new ReactorCore( engine );
+	}
+	
+	/**
+	 * Creates a new reactor core from a booting sequence that is read from a
+	 * stream. Steps are parsed without allocation and applied as they are read,
+	 * so the input never has to be held in memory as a whole. With the indexed
+	 * splitting engine memory is bounded by the set of active regions.
+	 * 
+	 * @param bootmin The minimal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @param bootmax The maximal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @param in The stream to read the boot instructions from
+	 * @param engine The engine that determines the active cubes
+	 * @return The reactor core
+	 * @throws IOException if reading the stream fails
+	 */
+	public static ReactorCore fromBootingStream( final int[] bootmin, final int[] bootmax, final InputStream in, final CoreEngine engine ) throws IOException {
+		final ReactorCore r = new ReactorCore( engine );
+		final BootSequenceReader reader = new BootSequenceReader( in );
+		while( r.boot( reader, bootmin, bootmax ) );
+		r.close( );
+		return r;
+	}
+	
+	/**
+	 * Creates a new reactor core from a booting sequence in a file
+	 * 
+	 * @param bootmin The minimal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @param bootmax The maximal coordinate of the boot region per axis, null
+	 *   for unbounded
+	 * @param path The path of the file that contains the boot instructions
+	 * @param engine The engine that determines the active cubes
+	 * @return The reactor core
+	 * @throws IOException if reading the file fails
+	 */
+	public static ReactorCore fromBootingStream( final int[] bootmin, final int[] bootmax, final Path path, final CoreEngine engine ) throws IOException {
+		try( final BootSequenceReader reader = BootSequenceReader.open( path ) ) {
+			final ReactorCore r = new ReactorCore( engine );
+			while( r.boot( reader, bootmin, bootmax ) );
+			r.close( );
+			return r;
+		}
+	}
 }
@@ -0,0 +1,49 @@
+package challenges.day22;
+
+/**
+ * Interface for the engines that keep track of the active cubes of the
+ * reactor core while the boot steps are applied to it
+ *
+ * @author Joris
+ */
+public interface ReactorEngine {
+	
+	/**
+	 * Applies a boot step, given by its bounds. The bounds may be reused by the
+	 * caller after the step has been applied.
+	 *
+	 * @param on True to turn the cubes on, false to turn them off
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	public void apply( final boolean on, final int[] min, final int[] max );
+	
+	/** @return The number of active cubes */
+	public long volume( );
+	
+	/**
+	 * Counts the number of active cubes within a window of the reactor
+	 *
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of active cubes within the window
+	 */
+	public long volume( final int[] min, final int[] max );
+	
+	/**
+	 * Sets the number of threads that the engine may use, engines that always
+	 * run on the calling thread ignore it
+	 *
+	 * @param threads The number of threads, 1 to always run sequentially
+	 */
+	public default void setParallelism( final int threads ) {
+		if( threads < 1 ) throw new IllegalArgumentException( "The number of threads must be at least 1" );
+	}
+	
+	/**
+	 * Releases the threads of the engine, if any. The engine remains usable
+	 * and starts them again when they are needed.
+	 */
+	public default void close( ) {
+	}
+}
@@ -0,0 +1,477 @@
+package challenges.day22;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over the disjoint active regions of the reactor core, kept as
+ * a dynamic bounding volume hierarchy. Every leaf of the tree is an active
+ * region and every inner node holds the bounding box of its two children, so
+ * that a boot step only has to visit the subtrees that it overlaps instead of
+ * all regions.
+ *
+ * New regions are inserted next to the sibling that least increases the
+ * surface area of the tree and the tree is kept balanced by rotations on the
+ * way back up, as in the dynamic AABB trees used for collision detection.
+ *
+ * Every node also keeps the total volume of the regions below it, so that
+ * the number of active cubes within a window can be counted by visiting
+ * only the nodes on the boundary of the window.
+ *
+ * The nodes are stored as struct of arrays and freed nodes are reused.
+ *
+ * @author Joris
+ */
+public class RegionIndex implements ReactorEngine {
+	/** Marks the absence of a node */
+	private static final int NONE = -1;
+	
+	/** The bounds of every node, stored as min x, y, z and max x, y, z */
+	private int[] bounds;
+	
+	/** The parent of every node, or the next free node if it is unused */
+	private int[] parent;
+	
+	/** The children of every node, NONE for leaves */
+	private int[] left, right;
+	
+	/** The height of every node, 0 for leaves */
+	private int[] height;
+	
+	/** The total volume of the regions below every node */
+	private long[] sum;
+	
+	/** The root of the tree */
+	private int root;
+	
+	/** The first node of the free list */
+	private int free;
+	
+	/** The number of regions in the index */
+	private int size;
+	
+	/** The total volume of all regions in the index */
+	private long volume;
+	
+	/** The traversal stack and the buffer of leaves found by a query */
+	private int[] stack, hits;
+	
+	/**
+	 * Creates a new, empty region index
+	 */
+	public RegionIndex( ) {
+		final int capacity = 64;
+		bounds = new int[ capacity * 6 ];
+		parent = new int[ capacity ];
+		left = new int[ capacity ];
+		right = new int[ capacity ];
+		height = new int[ capacity ];
+		sum = new long[ capacity ];
+		stack = new int[ 64 ];
+		hits = new int[ 64 ];
+		linkFree( 0, capacity );
+		root = NONE;
+		size = 0;
+		volume = 0;
+	}
+	
+	/**
+	 * Applies the boot step to the index: all regions that overlap the step are
+	 * replaced by the parts that remain outside of it and, if the step turns
+	 * cubes on, the step region is added
+	 *
+	 * @param step The boot step
+	 */
+	public void apply( final BootStep step ) {
+		apply( step.on, step.min, step.max );
+	}
+	
+	/**
+	 * Applies a boot step to the index, given by its bounds
+	 *
+	 * @param on True if the step turns the cubes on
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	@Override
+	public void apply( final boolean on, final int[] min, final int[] max ) {
+		final int n = query( min, max );
+		for( int i = 0; i < n; i++ ) {
+			final int leaf = hits[i];
+			final int b = leaf * 6;
+			final int x1 = bounds[b], y1 = bounds[b + 1], z1 = bounds[b + 2];
+			final int x2 = bounds[b + 3], y2 = bounds[b + 4], z2 = bounds[b + 5];
+			remove( leaf );
+			
+			// split off the parts outside the step, one axis at a time, clamping
+			// the axes that have already been split
+			final int cx1 = Math.max( x1, min[0] ), cx2 = Math.min( x2, max[0] );
+			final int cy1 = Math.max( y1, min[1] ), cy2 = Math.min( y2, max[1] );
+			if( x1 < min[0] ) insert( x1, y1, z1, min[0] - 1, y2, z2 );
+			if( x2 > max[0] ) insert( max[0] + 1, y1, z1, x2, y2, z2 );
+			if( y1 < min[1] ) insert( cx1, y1, z1, cx2, min[1] - 1, z2 );
+			if( y2 > max[1] ) insert( cx1, max[1] + 1, z1, cx2, y2, z2 );
+			if( z1 < min[2] ) insert( cx1, cy1, z1, cx2, cy2, min[2] - 1 );
+			if( z2 > max[2] ) insert( cx1, cy1, max[2] + 1, cx2, cy2, z2 );
+		}
+		
+		if( on ) insert( min[0], min[1], min[2], max[0], max[1], max[2] );
+	}
+	
+	/**
+	 * Finds all regions that overlap the given bounds and stores them in the
+	 * hits buffer
+	 *
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 * @return The number of regions found
+	 */
+	private int query( final int[] min, final int[] max ) {
+		if( root == NONE ) return 0;
+		
+		int found = 0;
+		int top = 0;
+		stack[top++] = root;
+		while( top > 0 ) {
+			final int node = stack[--top];
+			final int b = node * 6;
+			if( bounds[b] > max[0] || bounds[b + 3] < min[0] ||
+				bounds[b + 1] > max[1] || bounds[b + 4] < min[1] ||
+				bounds[b + 2] > max[2] || bounds[b + 5] < min[2] ) continue;
+			
+			if( left[node] == NONE ) {
+				if( found == hits.length ) hits = Arrays.copyOf( hits, found * 2 );
+				hits[found++] = node;
+			} else {
+				if( top + 2 > stack.length ) stack = Arrays.copyOf( stack, stack.length * 2 );
+				stack[top++] = left[node];
+				stack[top++] = right[node];
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Adds a region to the index
+	 *
+	 * @param x1 The minimal x coordinate
+	 * @param y1 The minimal y coordinate
+	 * @param z1 The minimal z coordinate
+	 * @param x2 The maximal x coordinate
+	 * @param y2 The maximal y coordinate
+	 * @param z2 The maximal z coordinate
+	 */
+	private void insert( final int x1, final int y1, final int z1, final int x2, final int y2, final int z2 ) {
+		final int leaf = allocate( );
+		final int b = leaf * 6;
+		bounds[b] = x1; bounds[b + 1] = y1; bounds[b + 2] = z1;
+		bounds[b + 3] = x2; bounds[b + 4] = y2; bounds[b + 5] = z2;
+		left[leaf] = NONE;
+		right[leaf] = NONE;
+		height[leaf] = 0;
+		sum[leaf] = ((long)x2 - x1 + 1) * ((long)y2 - y1 + 1) * ((long)z2 - z1 + 1);
+		size++;
+		volume += sum[leaf];
+		
+		if( root == NONE ) {
+			root = leaf;
+			parent[leaf] = NONE;
+			return;
+		}
+		
+		// descend to the sibling that least increases the surface area, taking
+		// into account the growth of all ancestors on the way down
+		int node = root;
+		while( left[node] != NONE ) {
+			final double area = area( node );
+			final double combined = unionArea( node, leaf );
+			final double cost = 2 * combined;
+			final double inherited = 2 * (combined - area);
+			final double costleft = childCost( left[node], leaf ) + inherited;
+			final double costright = childCost( right[node], leaf ) + inherited;
+			if( cost < costleft && cost < costright ) break;
+			node = costleft < costright ? left[node] : right[node];
+		}
+		
+		// create a new parent for the sibling and the leaf
+		final int sibling = node;
+		final int oldparent = parent[sibling];
+		final int newparent = allocate( );
+		parent[newparent] = oldparent;
+		height[newparent] = height[sibling] + 1;
+		left[newparent] = sibling;
+		right[newparent] = leaf;
+		parent[sibling] = newparent;
+		parent[leaf] = newparent;
+		if( oldparent == NONE ) root = newparent;
+		else if( left[oldparent] == sibling ) left[oldparent] = newparent;
+		else right[oldparent] = newparent;
+		
+		refit( newparent );
+	}
+	
+	/**
+	 * Removes a region from the index
+	 *
+	 * @param leaf The leaf node of the region
+	 */
+	private void remove( final int leaf ) {
+		volume -= sum[leaf];
+		size--;
+		
+		if( leaf == root ) {
+			root = NONE;
+			release( leaf );
+			return;
+		}
+		
+		// replace the parent of the leaf by its sibling
+		final int p = parent[leaf];
+		final int grandparent = parent[p];
+		final int sibling = left[p] == leaf ? right[p] : left[p];
+		parent[sibling] = grandparent;
+		if( grandparent == NONE ) {
+			root = sibling;
+		} else {
+			if( left[grandparent] == p ) left[grandparent] = sibling;
+			else right[grandparent] = sibling;
+			refit( grandparent );
+		}
+		release( p );
+		release( leaf );
+	}
+	
+	/**
+	 * Rebalances and recomputes the bounds, heights and volumes of the node
+	 * and all its ancestors
+	 *
+	 * @param start The node to start from
+	 */
+	private void refit( final int start ) {
+		int node = start;
+		while( node != NONE ) {
+			node = balance( node );
+			enclose( node, left[node], right[node] );
+			height[node] = 1 + Math.max( height[left[node]], height[right[node]] );
+			sum[node] = sum[left[node]] + sum[right[node]];
+			node = parent[node];
+		}
+	}
+	
+	/**
+	 * Rotates the deeper grandchild of the node up if the heights of its
+	 * subtrees differ more than one
+	 *
+	 * @param a The node to balance
+	 * @return The node that now takes the place of the given node
+	 */
+	private int balance( final int a ) {
+		if( left[a] == NONE || height[a] < 2 ) return a;
+		
+		final int b = left[a];
+		final int c = right[a];
+		final int diff = height[c] - height[b];
+		if( diff > 1 ) return rotate( a, c, b, false );
+		if( diff < -1 ) return rotate( a, b, c, true );
+		return a;
+	}
+	
+	/**
+	 * Rotates the higher child of a node up to take its place
+	 *
+	 * @param a The node
+	 * @param up The higher child of the node
+	 * @param other The other child of the node
+	 * @param upleft True if the higher child is the left child of the node
+	 * @return The child that took the place of the node
+	 */
+	private int rotate( final int a, final int up, final int other, final boolean upleft ) {
+		final int f = left[up];
+		final int g = right[up];
+		
+		// move the child up into the place of the node
+		parent[up] = parent[a];
+		parent[a] = up;
+		if( parent[up] == NONE ) root = up;
+		else if( left[parent[up]] == a ) left[parent[up]] = up;
+		else right[parent[up]] = up;
+		
+		// the node becomes a child of the moved up child, along with its higher
+		// grandchild, the lower grandchild takes the place of the moved up child
+		final int keep = height[f] > height[g] ? f : g;
+		final int move = keep == f ? g : f;
+		left[up] = a;
+		right[up] = keep;
+		if( upleft ) left[a] = move; else right[a] = move;
+		parent[move] = a;
+		
+		enclose( a, other, move );
+		height[a] = 1 + Math.max( height[other], height[move] );
+		sum[a] = sum[other] + sum[move];
+		enclose( up, a, keep );
+		height[up] = 1 + Math.max( height[a], height[keep] );
+		sum[up] = sum[a] + sum[keep];
+		return up;
+	}
+	
+	/**
+	 * Sets the bounds of a node to the bounding box of two other nodes
+	 *
+	 * @param node The node to update
+	 * @param n1 The first node to enclose
+	 * @param n2 The second node to enclose
+	 */
+	private void enclose( final int node, final int n1, final int n2 ) {
+		final int b = node * 6, b1 = n1 * 6, b2 = n2 * 6;
+		for( int i = 0; i < 3; i++ ) {
+			bounds[b + i] = Math.min( bounds[b1 + i], bounds[b2 + i] );
+			bounds[b + 3 + i] = Math.max( bounds[b1 + 3 + i], bounds[b2 + 3 + i] );
+		}
+	}
+	
+	/**
+	 * Determines the cost of inserting a leaf under the given child
+	 *
+	 * @param child The child node
+	 * @param leaf The leaf to insert
+	 * @return The increase in surface area caused by the insertion
+	 */
+	private double childCost( final int child, final int leaf ) {
+		final double combined = unionArea( child, leaf );
+		return left[child] == NONE ? combined : combined - area( child );
+	}
+	
+	/**
+	 * Computes the (half) surface area of the bounding box of the node
+	 *
+	 * @param node The node
+	 * @return The surface area
+	 */
+	private double area( final int node ) {
+		final int b = node * 6;
+		final double dx = (double)bounds[b + 3] - bounds[b] + 1;
+		final double dy = (double)bounds[b + 4] - bounds[b + 1] + 1;
+		final double dz = (double)bounds[b + 5] - bounds[b + 2] + 1;
+		return dx * dy + dy * dz + dz * dx;
+	}
+	
+	/**
+	 * Computes the (half) surface area of the bounding box of two nodes
+	 *
+	 * @param n1 The first node
+	 * @param n2 The second node
+	 * @return The surface area of their bounding box
+	 */
+	private double unionArea( final int n1, final int n2 ) {
+		final int b1 = n1 * 6, b2 = n2 * 6;
+		final double dx = (double)Math.max( bounds[b1 + 3], bounds[b2 + 3] ) - Math.min( bounds[b1], bounds[b2] ) + 1;
+		final double dy = (double)Math.max( bounds[b1 + 4], bounds[b2 + 4] ) - Math.min( bounds[b1 + 1], bounds[b2 + 1] ) + 1;
+		final double dz = (double)Math.max( bounds[b1 + 5], bounds[b2 + 5] ) - Math.min( bounds[b1 + 2], bounds[b2 + 2] ) + 1;
+		return dx * dy + dy * dz + dz * dx;
+	}
+	
+	/**
+	 * Takes a node from the free list, growing the node arrays if it is empty
+	 *
+	 * @return The node
+	 */
+	private int allocate( ) {
+		if( free == NONE ) {
+			final int capacity = parent.length;
+			bounds = Arrays.copyOf( bounds, capacity * 12 );
+			parent = Arrays.copyOf( parent, capacity * 2 );
+			left = Arrays.copyOf( left, capacity * 2 );
+			right = Arrays.copyOf( right, capacity * 2 );
+			height = Arrays.copyOf( height, capacity * 2 );
+			sum = Arrays.copyOf( sum, capacity * 2 );
+			linkFree( capacity, capacity * 2 );
+		}
+		
+		final int node = free;
+		free = parent[node];
+		return node;
+	}
+	
+	/**
+	 * Returns a node to the free list
+	 *
+	 * @param node The node
+	 */
+	private void release( final int node ) {
+		parent[node] = free;
+		free = node;
+	}
+	
+	/**
+	 * Links a range of unused nodes into the free list
+	 *
+	 * @param from The first node of the range
+	 * @param to The end of the range, exclusive
+	 */
+	private void linkFree( final int from, final int to ) {
+		for( int i = from; i < to - 1; i++ ) parent[i] = i + 1;
+		parent[to - 1] = NONE;
+		free = from;
+	}
+	
+	/** @return The total number of cubes in the regions of the index */
+	@Override
+	public long volume( ) {
+		return volume;
+	}
+	
+	/**
+	 * Counts the number of active cubes within a window. Subtrees that lie
+	 * completely inside the window are counted by their total volume, so only
+	 * the regions on the boundary of the window have to be visited.
+	 *
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of active cubes within the window
+	 */
+	@Override
+	public long volume( final int[] min, final int[] max ) {
+		if( root == NONE ) return 0;
+		
+		long count = 0;
+		int top = 0;
+		stack[top++] = root;
+		while( top > 0 ) {
+			final int node = stack[--top];
+			final int b = node * 6;
+			if( bounds[b] > max[0] || bounds[b + 3] < min[0] ||
+				bounds[b + 1] > max[1] || bounds[b + 4] < min[1] ||
+				bounds[b + 2] > max[2] || bounds[b + 5] < min[2] ) continue;
+			
+			if( bounds[b] >= min[0] && bounds[b + 3] <= max[0] &&
+				bounds[b + 1] >= min[1] && bounds[b + 4] <= max[1] &&
+				bounds[b + 2] >= min[2] && bounds[b + 5] <= max[2] ) {
+				count += sum[node];
+			} else if( left[node] == NONE ) {
+				long v = 1;
+				for( int a = 0; a < 3; a++ ) v *= (long)Math.min( bounds[b + 3 + a], max[a] ) - Math.max( bounds[b + a], min[a] ) + 1;
+				count += v;
+			} else {
+				if( top + 2 > stack.length ) stack = Arrays.copyOf( stack, stack.length * 2 );
+				stack[top++] = left[node];
+				stack[top++] = right[node];
+			}
+		}
+		return count;
+	}
+	
+	/** @return The number of regions in the index */
+	public int size( ) {
+		return size;
+	}
+	
+	/** @return The height of the tree, -1 if it is empty */
+	public int getHeight( ) {
+		return root == NONE ? -1 : height[root];
+	}
+	
+	/** @return The description of the index */
+	@Override
+	public String toString( ) {
+		return "[Index: " + size + " regions, height " + getHeight( ) + ", volume " + volume + "]";
+	}
+}
@@ -0,0 +1,126 @@
+package challenges.day22;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import aocutil.geometry.Cube3D;
+
+/**
+ * Set of disjoint regions of active cubes. Every boot step splits the regions
+ * that it overlaps so that only their parts outside of the step remain.
+ *
+ * @author Joris
+ */
+public class RegionSet implements ReactorEngine {
+	/** The map that contains the regions of cubes that are on  */
+	private Set<Cube3D> regions;
+	
+	/** The total volume of the active regions */
+	private long volume;
+	
+	/**
+	 * Creates a new, empty set of regions
+	 */
+	public RegionSet( ) {
+		this.regions = new HashSet<>( );
+		this.volume = 0;
+	}
+	
+	/**
+	 * Turns on the cubes in the specified region to on or off
+	 *
+	 * @param region The region to set value of
+	 * @param value True to activate the cubes in the area, false to deactivate
+	 */
+	public void set( final Cube3D region, final boolean value ) {
+		// reconstruct set of active cubes
+		final Set<Cube3D> newset = new HashSet<>( );
+		
+		// check with all existing regions if they overlap and make sure to keep
+		// only non-overlapping areas
+		for( final Cube3D cube : regions ) {
+			if( !region.overlaps( cube ) ) {
+				// no overlap means no change
+				newset.add( cube );
+			} else {
+				// if they do overlap, remove the new region from the cube and add
+				// the result of the subtraction to the set
+				volume -= cube.volume( );
+				for( final Cube3D c : cube.subtract( region ) ) {
+					newset.add( c );
+					volume += c.volume( );
+				}
+			}
+		}
+		
+		// if the region should active cubes add it and swap the sets
+		if( value ) {
+			newset.add( region );
+			volume += region.volume( );
+		}
+		regions = newset;
+	}
+	
+	/**
+	 * Applies a boot step to the set, given by its bounds
+	 *
+	 * @param on True to turn the cubes on, false to turn them off
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	@Override
+	public void apply( final boolean on, final int[] min, final int[] max ) {
+		set( toCube( min, max ), on );
+	}
+	
+	/**
+	 * Creates the region that is spanned by the given bounds
+	 *
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 * @return The region
+	 */
+	private static Cube3D toCube( final int[] min, final int[] max ) {
+		return new Cube3D( min[0], min[1], min[2], max[0], max[1], max[2] );
+	}
+	
+	/** @return The number of active cubes */
+	@Override
+	public long volume( ) {
+		return volume;
+	}
+	
+	/**
+	 * Counts the number of active cubes within a window by clipping every
+	 * region that overlaps it
+	 *
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of active cubes within the window
+	 */
+	@Override
+	public long volume( final int[] min, final int[] max ) {
+		final Cube3D window = toCube( min, max );
+		long count = 0;
+		for( final Cube3D c : regions ) {
+			if( !c.overlaps( window ) ) continue;
+			
+			// count the part of the region that remains after removing everything
+			// outside of the window
+			count += c.volume( );
+			for( final Cube3D outside : c.subtract( window ) ) count -= outside.volume( );
+		}
+		return count;
+	}
+	
+	/** @return The number of regions in the set */
+	public int size( ) {
+		return regions.size( );
+	}
+	
+	/** @return The active regions */
+	@Override
+	public String toString( ) {
+		return regions.toString( );
+	}
+}
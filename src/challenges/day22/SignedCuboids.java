@@ -0,0 +1,317 @@
+package challenges.day22;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * List of signed cuboids that represents the active cubes of the reactor by
+ * inclusion-exclusion: the number of active cubes is the sum of the volumes
+ * of all positive cuboids minus those of the negative cuboids.
+ * 
+ * Every boot step adds the intersection of the step with every cuboid in the
+ * list, with the opposite sign, so that the cubes of the step are no longer
+ * counted. If the step turns cubes on, the step region itself is added as a
+ * positive cuboid. A cuboid that lies completely within the step region is
+ * removed rather than cancelled by its own negation, which keeps the list
+ * from growing when steps cover earlier ones.
+ * 
+ * The cuboids are stored as struct of arrays and the intersection scan is
+ * split over multiple threads when the list is large.
+ * 
+ * @author Joris
+ */
+public class SignedCuboids implements ReactorEngine {
+	/** The minimal list size to scan in parallel */
+	private static final int PARALLEL_THRESHOLD = 1 << 13;
+	
+	/** The minimal and maximal coordinate of every cuboid per axis, inclusive */
+	private int[] minx, maxx, miny, maxy, minz, maxz;
+	
+	/** The sign of every cuboid, 1 or -1 */
+	private int[] sign;
+	
+	/** The number of cuboids in the list */
+	private int size;
+	
+	/** The signed sum of the volumes of all cuboids, i.e. the number of active cubes */
+	private long volume;
+	
+	/** The number of threads to scan with */
+	private int parallelism;
+	
+	/** The pool to run parallel scans in, created when first needed */
+	private ForkJoinPool pool;
+	
+	/**
+	 * Creates a new, empty list of signed cuboids
+	 */
+	public SignedCuboids( ) {
+		final int capacity = 64;
+		minx = new int[ capacity ]; maxx = new int[ capacity ];
+		miny = new int[ capacity ]; maxy = new int[ capacity ];
+		minz = new int[ capacity ]; maxz = new int[ capacity ];
+		sign = new int[ capacity ];
+		size = 0;
+		volume = 0;
+		parallelism = Runtime.getRuntime( ).availableProcessors( );
+	}
+	
+	/**
+	 * Sets the number of threads that are used for the intersection scan
+	 * 
+	 * @param threads The number of threads, 1 to always scan sequentially
+	 */
+	@Override
+	public void setParallelism( final int threads ) {
+		if( threads < 1 ) throw new IllegalArgumentException( "The number of threads must be at least 1" );
+		if( pool != null ) pool.shutdown( );
+		pool = null;
+		parallelism = threads;
+	}
+	
+	/**
+	 * Applies the boot step to the list
+	 * 
+	 * @param step The boot step
+	 */
+	public void apply( final BootStep step ) {
+		apply( step.on, step.min, step.max );
+	}
+	
+	/**
+	 * Applies a boot step to the list, given by its bounds
+	 * 
+	 * @param on True if the step turns the cubes on
+	 * @param min The minimal coordinate per axis
+	 * @param max The maximal coordinate per axis
+	 */
+	@Override
+	public void apply( final boolean on, final int[] min, final int[] max ) {
+		// scan the list for intersections and cuboids that the step covers
+		final int chunks = size >= PARALLEL_THRESHOLD ? parallelism : 1;
+		if( chunks == 1 ) {
+			final Intersections result = scan( min, max, 0, size );
+			append( result );
+		} else {
+			if( pool == null ) pool = new ForkJoinPool( parallelism );
+			final List<Future<Intersections>> tasks = new ArrayList<>( chunks );
+			final int n = size;
+			for( int c = 0; c < chunks; c++ ) {
+				final int from = (int)((long)n * c / chunks);
+				final int to = (int)((long)n * (c + 1) / chunks);
+				tasks.add( pool.submit( ( ) -> scan( min, max, from, to ) ) );
+			}
+			
+			// wait for all scans before appending, as appending may grow the
+			// arrays that are being scanned
+			final List<Intersections> results = new ArrayList<>( chunks );
+			for( final Future<Intersections> f : tasks ) {
+				try {
+					results.add( f.get( ) );
+				} catch( Exception e ) {
+					throw new RuntimeException( "Intersection scan failed", e );
+				}
+			}
+			for( final Intersections result : results ) append( result );
+		}
+		
+		// remove covered cuboids and add the region itself when turning on
+		compact( );
+		if( on ) add( min[0], max[0], min[1], max[1], min[2], max[2], 1 );
+	}
+	
+	/**
+	 * Scans part of the list for intersections with the step region. Cuboids
+	 * that lie completely within the region get sign 0 to mark them for
+	 * removal, which is safe as every scan covers a distinct part of the list.
+	 * 
+	 * @param min The minimal coordinate of the step region per axis
+	 * @param max The maximal coordinate of the step region per axis
+	 * @param from The first index to scan
+	 * @param to The index to stop before
+	 * @return The negated intersections
+	 */
+	private Intersections scan( final int[] min, final int[] max, final int from, final int to ) {
+		final Intersections res = new Intersections( );
+		final int sx = min[0], ex = max[0];
+		final int sy = min[1], ey = max[1];
+		final int sz = min[2], ez = max[2];
+		final int[] minx = this.minx, maxx = this.maxx;
+		final int[] miny = this.miny, maxy = this.maxy;
+		final int[] minz = this.minz, maxz = this.maxz;
+		final int[] sign = this.sign;
+		
+		for( int i = from; i < to; i++ ) {
+			final int x0 = Math.max( sx, minx[i] ), x1 = Math.min( ex, maxx[i] );
+			if( x0 > x1 ) continue;
+			final int y0 = Math.max( sy, miny[i] ), y1 = Math.min( ey, maxy[i] );
+			if( y0 > y1 ) continue;
+			final int z0 = Math.max( sz, minz[i] ), z1 = Math.min( ez, maxz[i] );
+			if( z0 > z1 ) continue;
+			
+			// the cuboid is covered completely, remove it instead of negating it
+			if( x0 == minx[i] && x1 == maxx[i] && y0 == miny[i] && y1 == maxy[i] && z0 == minz[i] && z1 == maxz[i] ) {
+				res.removed += sign[i] * ((long)x1 - x0 + 1) * ((long)y1 - y0 + 1) * ((long)z1 - z0 + 1);
+				sign[i] = 0;
+				continue;
+			}
+			
+			res.add( x0, x1, y0, y1, z0, z1, -sign[i] );
+		}
+		return res;
+	}
+	
+	/**
+	 * Appends all intersections to the list
+	 * 
+	 * @param res The intersections
+	 */
+	private void append( final Intersections res ) {
+		volume -= res.removed;
+		for( int i = 0; i < res.size; i++ ) {
+			final int b = i * 6;
+			add( res.bounds[b], res.bounds[ b + 1 ], res.bounds[ b + 2 ], res.bounds[ b + 3 ], res.bounds[ b + 4 ], res.bounds[ b + 5 ], res.sign[i] );
+		}
+	}
+	
+	/**
+	 * Adds a cuboid to the list
+	 * 
+	 * @param x0 The minimal x
+	 * @param x1 The maximal x
+	 * @param y0 The minimal y
+	 * @param y1 The maximal y
+	 * @param z0 The minimal z
+	 * @param z1 The maximal z
+	 * @param s The sign of the cuboid
+	 */
+	private void add( final int x0, final int x1, final int y0, final int y1, final int z0, final int z1, final int s ) {
+		if( size == sign.length ) grow( );
+		minx[ size ] = x0; maxx[ size ] = x1;
+		miny[ size ] = y0; maxy[ size ] = y1;
+		minz[ size ] = z0; maxz[ size ] = z1;
+		sign[ size ] = s;
+		size++;
+		volume += s * ((long)x1 - x0 + 1) * ((long)y1 - y0 + 1) * ((long)z1 - z0 + 1);
+	}
+	
+	/**
+	 * Doubles the capacity of the list
+	 */
+	private void grow( ) {
+		final int capacity = sign.length * 2;
+		minx = Arrays.copyOf( minx, capacity ); maxx = Arrays.copyOf( maxx, capacity );
+		miny = Arrays.copyOf( miny, capacity ); maxy = Arrays.copyOf( maxy, capacity );
+		minz = Arrays.copyOf( minz, capacity ); maxz = Arrays.copyOf( maxz, capacity );
+		sign = Arrays.copyOf( sign, capacity );
+	}
+	
+	/**
+	 * Removes all cuboids that are marked for removal
+	 */
+	private void compact( ) {
+		int n = 0;
+		for( int i = 0; i < size; i++ ) {
+			if( sign[i] == 0 ) continue;
+			if( n != i ) {
+				minx[n] = minx[i]; maxx[n] = maxx[i];
+				miny[n] = miny[i]; maxy[n] = maxy[i];
+				minz[n] = minz[i]; maxz[n] = maxz[i];
+				sign[n] = sign[i];
+			}
+			n++;
+		}
+		size = n;
+	}
+	
+	/** @return The number of active cubes */
+	@Override
+	public long volume( ) {
+		return volume;
+	}
+	
+	/**
+	 * Counts the number of active cubes within a window by summing the signed
+	 * volumes of the intersections of all cuboids with the window
+	 * 
+	 * @param min The minimal coordinate of the window per axis
+	 * @param max The maximal coordinate of the window per axis
+	 * @return The number of active cubes within the window
+	 */
+	@Override
+	public long volume( final int[] min, final int[] max ) {
+		long v = 0;
+		for( int i = 0; i < size; i++ ) {
+			final long dx = (long)Math.min( max[0], maxx[i] ) - Math.max( min[0], minx[i] ) + 1;
+			final long dy = (long)Math.min( max[1], maxy[i] ) - Math.max( min[1], miny[i] ) + 1;
+			final long dz = (long)Math.min( max[2], maxz[i] ) - Math.max( min[2], minz[i] ) + 1;
+			if( dx > 0 && dy > 0 && dz > 0 ) v += sign[i] * dx * dy * dz;
+		}
+		return v;
+	}
+	
+	/** @return The number of cuboids in the list */
+	public int size( ) {
+		return size;
+	}
+	
+	/**
+	 * Releases the threads used for parallel scans, they are started again
+	 * when the list grows large enough to scan in parallel
+	 */
+	@Override
+	public void close( ) {
+		if( pool != null ) pool.shutdown( );
+		pool = null;
+	}
+	
+	/** @return The description of the list */
+	@Override
+	public String toString( ) {
+		return "[Cuboids: " + size + "]";
+	}
+	
+	/**
+	 * Buffer of signed intersections found by a single scan, with the bounds
+	 * of every cuboid stored consecutively
+	 */
+	private static class Intersections {
+		/** The bounds, six per cuboid */
+		private int[] bounds = new int[ 6 * 16 ];
+		
+		/** The signs */
+		private int[] sign = new int[ 16 ];
+		
+		/** The number of cuboids */
+		private int size = 0;
+		
+		/** The signed volume of the cuboids that were marked for removal */
+		private long removed = 0;
+		
+		/**
+		 * Adds a cuboid to the buffer
+		 * 
+		 * @param x0 The minimal x
+		 * @param x1 The maximal x
+		 * @param y0 The minimal y
+		 * @param y1 The maximal y
+		 * @param z0 The minimal z
+		 * @param z1 The maximal z
+		 * @param s The sign of the cuboid
+		 */
+		private void add( final int x0, final int x1, final int y0, final int y1, final int z0, final int z1, final int s ) {
+			if( size == sign.length ) {
+				bounds = Arrays.copyOf( bounds, bounds.length * 2 );
+				sign = Arrays.copyOf( sign, sign.length * 2 );
+			}
+			final int b = size * 6;
+			bounds[b] = x0; bounds[ b + 1 ] = x1;
+			bounds[ b + 2 ] = y0; bounds[ b + 3 ] = y1;
+			bounds[ b + 4 ] = z0; bounds[ b + 5 ] = z1;
+			sign[ size++ ] = s;
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package challenges.day22;
+
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+public class StreamBenchmark {
+	
+	/** The numbers of boot steps to generate */
+	private static final int[] STEPS = { 10000, 100000, 1000000 };
+	
+	/** The size of the grid cells that the step regions are aligned to */
+	private static final int CELL = 1000;
+	
+	/** The number of grid cells per axis */
+	private static final int CELLS = 40;
+	
+	/** The maximal size of a step region per axis, in cells */
+	private static final int SIZE = 8;
+	
+	/**
+	 * Compares reading a boot sequence as a list of lines with streaming it
+	 * from the file, on random sequences of increasing length. The regions are
+	 * aligned to a grid of fixed size, which bounds the number of active
+	 * regions regardless of the length of the sequence. Both use the indexed
+	 * splitting engine, so the difference is in the parsing and the memory
+	 * that is held for the input.
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		System.out.println( String.format( "%-10s %10s %10s %10s %10s %20s", "Steps", "List", "Heap", "Stream", "Heap", "Active" ) );
+		for( final int n : STEPS ) {
+			final Path file = Files.createTempFile( "day22_", ".txt" );
+			try {
+				generate( file, n, new Random( n ) );
+				
+				gc( );
+				long start = System.currentTimeMillis( );
+				final List<String> input = Files.readAllLines( file );
+				final ReactorCore listcore = ReactorCore.fromBootingSequence( null, input, CoreEngine.IndexedSplitting );
+				final long listtime = System.currentTimeMillis( ) - start;
+				gc( );
+				final long listheap = used( );
+				final long expected = listcore.getActivatedCubes( );
+				input.clear( );
+				
+				gc( );
+				start = System.currentTimeMillis( );
+				final ReactorCore streamcore = ReactorCore.fromBootingStream( null, null, file, CoreEngine.IndexedSplitting );
+				final long streamtime = System.currentTimeMillis( ) - start;
+				gc( );
+				final long streamheap = used( );
+				final long active = streamcore.getActivatedCubes( );
+				if( active != expected ) System.out.println( "!! Streaming disagrees: " + active + " vs " + expected );
+				
+				System.out.println( String.format( "%-10d %8dms %8dMB %8dms %8dMB %20d", n, listtime, listheap >> 20, streamtime, streamheap >> 20, active ) );
+			} finally {
+				Files.delete( file );
+			}
+		}
+	}
+	
+	/**
+	 * Writes a random boot sequence of grid aligned regions of which one in
+	 * four steps turns cubes off
+	 *
+	 * @param file The file to write to
+	 * @param n The number of steps
+	 * @param rand The random generator to use
+	 * @throws Exception
+	 */
+	private static void generate( final Path file, final int n, final Random rand ) throws Exception {
+		final String[] axes = { "x", "y", "z" };
+		try( final BufferedWriter w = Files.newBufferedWriter( file ) ) {
+			for( int i = 0; i < n; i++ ) {
+				w.write( rand.nextInt( 4 ) == 0 ? "off " : "on " );
+				for( int a = 0; a < 3; a++ ) {
+					final int min = rand.nextInt( CELLS ) - CELLS / 2;
+					final int max = min + rand.nextInt( SIZE ) + 1;
+					w.write( (a > 0 ? "," : "") + axes[a] + "=" + (min * CELL) + ".." + (max * CELL - 1) );
+				}
+				w.newLine( );
+			}
+		}
+	}
+	
+	/** Runs the garbage collector to get comparable heap measurements */
+	private static void gc( ) {
+		for( int i = 0; i < 3; i++ ) System.gc( );
+	}
+	
+	/** @return The heap memory currently in use */
+	private static long used( ) {
+		final Runtime rt = Runtime.getRuntime( );
+		return rt.totalMemory( ) - rt.freeMemory( );
+	}
+}
@@ -4,8 +4,11 @@ import java.util.List;
 
 import aocutil.io.FileReader;
 import challenges.day23.apods.Burrow;
+import challenges.day23.organiser.DeadlockDetector;
 import challenges.day23.organiser.Organiser;
-import challenges.day23.organiser.heuristics.energy.EHMinimalInvalid;
+import challenges.day23.organiser.SearchMode;
+import challenges.day23.organiser.TranspositionTable;
+import challenges.day23.organiser.heuristics.energy.EHBlockedHome;
 import challenges.day23.organiser.heuristics.move.MHLeastEnergyFirst;
 
 public class Day23 {
@@ -46,8 +49,11 @@ public class Day23 {
 		final Organiser o = new Organiser( b );
 		
 		o.setVerbose( true );
+		o.setSearchMode( SearchMode.PackedBranchAndBound );
 		o.setMoveHeuristic( new MHLeastEnergyFirst( ) );
-		o.setEnergyHeuristic( new EHMinimalInvalid( ) );
+		o.setEnergyHeuristic( new EHBlockedHome( ) );
+		o.setTranspositionTable( new TranspositionTable( 1 << 22 ) );
+		o.setDeadlockDetector( new DeadlockDetector( ) );
 		
 		return o.organise( );
 	}
@@ -0,0 +1,61 @@
+package challenges.day23;
+
+import java.util.List;
+
+import aocutil.io.FileReader;
+import challenges.day23.apods.Burrow;
+import challenges.day23.organiser.Organiser;
+import challenges.day23.organiser.Organiser.OrganiserStats;
+import challenges.day23.organiser.SearchMode;
+import challenges.day23.organiser.TranspositionTable;
+import challenges.day23.organiser.heuristics.energy.EHBlockedHome;
+import challenges.day23.organiser.heuristics.energy.EHMinimalInvalid;
+import challenges.day23.organiser.heuristics.energy.EHRoomFill;
+import challenges.day23.organiser.heuristics.energy.EnergyHeuristic;
+import challenges.day23.organiser.heuristics.move.MHLeastEnergyFirst;
+
+public class HeuristicBenchmark {
+	
+	/** The heuristics to compare */
+	private static final EnergyHeuristic[] HEURISTICS = { null, new EHMinimalInvalid( ), new EHRoomFill( ), new EHBlockedHome( ) };
+	
+	/** The search modes to compare them in */
+	private static final SearchMode[] MODES = { SearchMode.PackedBranchAndBound, SearchMode.BestFirst };
+	
+	/**
+	 * Compares the available energy heuristics on the example and real inputs
+	 * of day 23 by the number of states evaluated, the fraction of states
+	 * pruned by the heuristic and the run time
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final String[] inputs = { "day23_example.txt", "day23_input.txt", "day23_example2.txt", "day23_input2.txt" };
+		
+		System.out.println( String.format( "%-20s %-22s %-18s %8s %12s %8s %8s", "Input", "Mode", "Heuristic", "Energy", "States", "Pruned", "Time" ) );
+		for( final String file : inputs ) {
+			final List<String> input = new FileReader( HeuristicBenchmark.class.getResource( file ) ).readLines( );
+			for( final SearchMode mode : MODES ) {
+				long expected = -1;
+				for( final EnergyHeuristic H : HEURISTICS ) {
+					final Organiser o = new Organiser( Burrow.fromStringList( input ) );
+					o.setSearchMode( mode );
+					o.setMoveHeuristic( new MHLeastEnergyFirst( ) );
+					o.setEnergyHeuristic( H );
+					o.setTranspositionTable( new TranspositionTable( 1 << 22 ) );
+					
+					final long energy = o.organise( );
+					final OrganiserStats stats = o.getStats( );
+					final String name = H == null ? "(none)" : H.getClass( ).getSimpleName( );
+					final double pruned = stats.getStateCount( ) > 0 ? (double)stats.getDiscardedHEnergy( ) * 100.0 / stats.getStateCount( ) : 0;
+					System.out.println( String.format( "%-20s %-22s %-18s %8d %12d %7.2f%% %6dms", file, mode, name, energy, stats.getStateCount( ), pruned, stats.getRunTime( ) ) );
+					
+					// all admissible heuristics should result in the same optimum
+					if( expected == -1 ) expected = energy;
+					else if( energy != expected ) System.out.println( "!! Heuristic " + name + " is not admissible: " + energy + " vs " + expected );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,51 @@
+package challenges.day23;
+
+import java.util.List;
+
+import aocutil.io.FileReader;
+import challenges.day23.apods.Burrow;
+import challenges.day23.organiser.DeadlockDetector;
+import challenges.day23.organiser.Organiser;
+import challenges.day23.organiser.Organiser.OrganiserStats;
+import challenges.day23.organiser.SearchMode;
+import challenges.day23.organiser.heuristics.energy.EHBlockedHome;
+import challenges.day23.organiser.heuristics.move.MHLeastEnergyFirst;
+
+public class ParallelBenchmark {
+	
+	/** The search modes to compare, the first is the sequential reference */
+	private static final SearchMode[] MODES = { SearchMode.PackedBranchAndBound, SearchMode.ParallelBranchAndBound };
+	
+	/**
+	 * Runs the parallel branch-and-bound on the example inputs of day 23 and
+	 * checks that it finds the same optimum as the sequential search. No
+	 * transposition table is used, so that every worker explores its entire
+	 * subtree.
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final String[] inputs = { "day23_example.txt", "day23_example2.txt" };
+		
+		System.out.println( String.format( "%-20s %-22s %8s %12s %8s", "Input", "Mode", "Energy", "States", "Time" ) );
+		for( final String file : inputs ) {
+			final List<String> input = new FileReader( ParallelBenchmark.class.getResource( file ) ).readLines( );
+			long expected = -1;
+			for( final SearchMode mode : MODES ) {
+				final Organiser o = new Organiser( Burrow.fromStringList( input ) );
+				o.setSearchMode( mode );
+				o.setMoveHeuristic( new MHLeastEnergyFirst( ) );
+				o.setEnergyHeuristic( new EHBlockedHome( ) );
+				o.setDeadlockDetector( new DeadlockDetector( ) );
+				
+				final long energy = o.organise( );
+				final OrganiserStats stats = o.getStats( );
+				System.out.println( String.format( "%-20s %-22s %8d %12d %6dms", file, mode, energy, stats.getStateCount( ), stats.getRunTime( ) ) );
+				
+				if( expected == -1 ) expected = energy;
+				else if( energy != expected ) System.out.println( "!! Search mode " + mode + " is not optimal: " + energy + " vs " + expected );
+			}
+		}
+	}
+}
@@ -0,0 +1,111 @@
+package challenges.day23;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
+import challenges.day23.apods.BurrowGenerator;
+import challenges.day23.organiser.DeadlockDetector;
+import challenges.day23.organiser.Organiser;
+import challenges.day23.organiser.Organiser.OrganiserStats;
+import challenges.day23.organiser.SearchMode;
+import challenges.day23.organiser.Solution;
+import challenges.day23.organiser.TranspositionTable;
+import challenges.day23.organiser.heuristics.energy.EHBlockedHome;
+import challenges.day23.organiser.heuristics.move.MHLeastEnergyFirst;
+
+public class ScalingBenchmark {
+	
+	/** The search modes to benchmark */
+	private static final SearchMode[] MODES = { SearchMode.PackedBranchAndBound, SearchMode.BestFirst };
+	
+	/**
+	 * Runs the organiser on randomly generated burrows of increasing size to
+	 * show how the number of states evaluated, the memory usage and the run
+	 * time scale with the number of rooms and the room depth. Every run is
+	 * limited to a time budget so that the benchmark completes even when the
+	 * search blows up.
+	 * 
+	 * Usage: ScalingBenchmark [budget in ms] [max rooms] [max depth]
+	 *   [hallway padding] [seeds per size]
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final long budget = args.length > 0 ? Long.parseLong( args[0] ) : 5000;
+		final int maxrooms = args.length > 1 ? Integer.parseInt( args[1] ) : 5;
+		final int maxdepth = args.length > 2 ? Integer.parseInt( args[2] ) : 5;
+		final int padding = args.length > 3 ? Integer.parseInt( args[3] ) : 0;
+		final int seeds = args.length > 4 ? Integer.parseInt( args[4] ) : 3;
+		
+		System.out.println( String.format( "%-5s %-5s %-5s %-22s %8s %12s %10s %8s  %s", "Rooms", "Depth", "Seed", "Mode", "Energy", "States", "Heap", "Time", "Status" ) );
+		for( int rooms = 2; rooms <= maxrooms; rooms++ ) {
+			for( int depth = 2; depth <= maxdepth; depth++ ) {
+				for( int seed = 0; seed < seeds; seed++ ) {
+					for( final SearchMode mode : MODES ) {
+						// regenerate the burrow for every mode so that all start fresh
+						final Burrow burrow = new BurrowGenerator( seed ).generate( rooms, depth, padding );
+						final Organiser o = new Organiser( burrow );
+						o.setSearchMode( mode );
+						o.setMoveHeuristic( new MHLeastEnergyFirst( ) );
+						o.setEnergyHeuristic( new EHBlockedHome( ) );
+						o.setTranspositionTable( new TranspositionTable( 1 << 22 ) );
+						o.setDeadlockDetector( new DeadlockDetector( ) );
+						
+						// measure the heap growth during the search, on top of the
+						// memory that is already in use (mostly the transposition table)
+						System.gc( );
+						final long base = getHeap( false );
+						resetPeakHeap( );
+						final Solution s = o.organiseUntil( System.currentTimeMillis( ) + budget );
+						final long peak = Math.max( 0, getHeap( true ) - base );
+						
+						final OrganiserStats stats = o.getStats( );
+						System.out.println( String.format( "%-5d %-5d %-5d %-22s %8s %12d %8dKB %6dms  %s", rooms, depth, seed, mode, 
+								s.getMoveCount( ) == -1 ? "-" : "" + s.getEnergy( ), stats.getStateCount( ), peak >> 10, stats.getRunTime( ), getStatus( s ) ) );
+					}
+				}
+			}
+		}
+		
+		System.out.println( );
+		System.out.println( "Packed state size for the largest burrow: " + new BurrowEncoding( new BurrowGenerator( 0 ).generate( maxrooms, maxdepth, padding ) ).words + " long(s)" );
+	}
+	
+	/**
+	 * Describes the outcome of the organiser run
+	 * 
+	 * @param s The solution that was returned
+	 * @return The status description
+	 */
+	private static String getStatus( final Solution s ) {
+		if( s.isOptimal( ) ) return "optimal";
+		if( s.getMoveCount( ) == -1 ) return s.getLowerBound( ) == Long.MAX_VALUE ? "infeasible" : "timeout (bound " + s.getLowerBound( ) + ")";
+		return String.format( "timeout (gap %.2f%%)", s.getGap( ) * 100.0 );
+	}
+	
+	/**
+	 * Resets the peak usage of all heap memory pools
+	 */
+	private static void resetPeakHeap( ) {
+		for( final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans( ) )
+			if( pool.getType( ) == MemoryType.HEAP ) pool.resetPeakUsage( );
+	}
+	
+	/**
+	 * Determines the heap usage, summed over all heap memory pools
+	 * 
+	 * @param peak True to return the peak usage since the last reset, false
+	 *   for the current usage
+	 * @return The heap usage in bytes
+	 */
+	private static long getHeap( final boolean peak ) {
+		long used = 0;
+		for( final MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans( ) )
+			if( pool.getType( ) == MemoryType.HEAP ) used += (peak ? pool.getPeakUsage( ) : pool.getUsage( )).getUsed( );
+		return used;
+	}
+}
@@ -1,5 +1,7 @@
 package challenges.day23.apods;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 import aocutil.geometry.Coord2D;
 
 /**
@@ -11,8 +13,8 @@ public class Apod {
 	/** The index to uniquely identify it in sets and lists */
 	private final int ID;
 	
-	/** The next available ID */
-	private static int nextID = 0;
+	/** The next available ID, atomic as burrows are copied concurrently */
+	private static final AtomicInteger nextID = new AtomicInteger( );
 	
 	/** The family of Apods it belongs to */
 	protected final ApodFamily family;
@@ -32,7 +34,7 @@ public class Apod {
 	 */
 	protected Apod( final char family, final Coord2D position ) {
 		this.family = ApodFamily.fromFamilyClass( family );
-		this.ID = nextID++;
+		this.ID = nextID.getAndIncrement( );
 		this.position = position;
 		this.room = null;
 	}
@@ -123,6 +125,16 @@ public class Apod {
 		return (dx + dy) * family.energy;
 	}
 	
+	/**
+	 * Computes the energy consumption for walking the number of steps
+	 * 
+	 * @param steps The number of steps
+	 * @return The apod's energy consumption for such a move
+	 */
+	public long getEnergyConsumption( final int steps ) {
+		return (long)steps * family.energy;
+	}
+	
 	/** @return The apod description */
 	@Override
 	public String toString( ) {
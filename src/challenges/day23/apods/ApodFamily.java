@@ -9,7 +9,9 @@ public enum ApodFamily {
 	Amber ('A', 1),
 	Bronze ('B', 10),
 	Copper ('C', 100),
-	Desert ('D', 1000);
+	Desert ('D', 1000),
+	Ebony ('E', 10000),
+	Flint ('F', 100000);
 	
 	/** The family classification letter */
 	protected final char classification;
@@ -28,6 +30,11 @@ public enum ApodFamily {
 		this.energy = energy;
 	}
 	
+	/** @return The energy consumption per move of this family */
+	public int getEnergy( ) {
+		return energy;
+	}
+	
 	/** @return The family classification letter */
 	@Override
 	public String toString( ) {
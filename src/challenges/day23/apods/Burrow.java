@@ -5,6 +5,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
 import aocutil.geometry.Coord2D;
@@ -28,9 +29,30 @@ public class Burrow {
 	/** The set of apods in the burrow */
 	private final Set<Apod> apods;
 	
+	/** The apods in the burrow as array, for iteration without allocation */
+	private final Apod[] apodarray;
+	
+	/** The bit mask of occupied hallway positions */
+	private long hallmask;
+	
 	/** The rooms per family and their current occupation */
 	private final Map<ApodFamily, BurrowRoom> rooms;
 	
+	/** The random Zobrist keys per burrow cell (hallway + room slots) and family */
+	private final long[][] zobrist;
+	
+	/** The room index for every hallway position, -1 if it is not a door */
+	private final int[] door2room;
+	
+	/** The number of steps between every room slot and hallway position */
+	private final int[][] steps;
+	
+	/** The hallway positions that need to be free to walk between a room door and a hallway position */
+	private final long[][] pathmask;
+	
+	/** The Zobrist hash of the current burrow configuration */
+	private long statehash;
+	
 	/**
 	 * Creates a new burrow with the given map of apods and their starting
 	 * positions
@@ -44,13 +66,49 @@ public class Burrow {
 		this.roomsize = roomsize;
 		this.rooms = new HashMap<>( rooms );
 		this.apods = new HashSet<>( apods );
+		this.apodarray = apods.toArray( new Apod[ 0 ] );
+		if( hallsize > 63 ) throw new IllegalArgumentException( "The hallway is too long: " + hallsize );
 
 		// create array to contain positions of apods in the hallway
 		this.hallway = new Apod[ hallsize ];
 		for( final Apod a : apods ) {
 			if( !a.inHallway( ) ) continue;
 			this.hallway[ a.getX( ) ] = a;
+			this.hallmask |= 1L << a.getX( );
+		}
+		
+		// map doors onto their room index, we use the family ordinal for that
+		this.door2room = new int[ hallsize ];
+		for( int x = 0; x < hallsize; x++ ) door2room[ x ] = -1;
+		for( final BurrowRoom r : rooms.values( ) )
+			door2room[ r.door ] = r.family.ordinal( );
+		
+		// precompute the distances and paths between the rooms and hallway so
+		// that move legality and costs become a table lookup and mask test
+		this.steps = new int[ rooms.size( ) * roomsize ][ hallsize ];
+		this.pathmask = new long[ rooms.size( ) ][ hallsize ];
+		for( final BurrowRoom r : rooms.values( ) ) {
+			final int idx = r.family.ordinal( );
+			for( int x = 0; x < hallsize; x++ ) {
+				pathmask[ idx ][ x ] = x < r.door ? range( x + 1, r.door ) : range( r.door, x - 1 );
+				for( int d = 0; d < roomsize; d++ )
+					steps[ idx * roomsize + d ][ x ] = Math.abs( r.door - x ) + d + 1;
+			}
 		}
+		
+		// generate Zobrist keys for every cell and family, using a fixed seed so
+		// that hashes are reproducible between runs
+		final Random rand = new Random( 2021 );
+		final int cells = hallsize + ApodFamily.values( ).length * roomsize;
+		this.zobrist = new long[ cells ][ ApodFamily.values( ).length ];
+		for( int c = 0; c < cells; c++ )
+			for( int f = 0; f < zobrist[c].length; f++ )
+				zobrist[c][f] = rand.nextLong( );
+		
+		// and compute the hash of the initial configuration
+		this.statehash = 0;
+		for( final Apod a : apods )
+			statehash ^= zobrist[ getCell( a.getX( ), a.getY( ) ) ][ a.family.ordinal( ) ];
 	}
 	
 	/** @return The set of apods in the burrow */
@@ -58,6 +116,22 @@ public class Burrow {
 		return apods;
 	}
 	
+	/** @return The number of apods in the burrow */
+	public int getApodCount( ) {
+		return apodarray.length;
+	}
+	
+	/**
+	 * Returns an apod by its index, allows iteration over all apods without
+	 * creating an iterator
+	 * 
+	 * @param index The index of the apod (0 to getApodCount( ) - 1)
+	 * @return The apod
+	 */
+	public Apod getApod( final int index ) {
+		return apodarray[ index ];
+	}
+	
 	/** @return The list of rooms */
 	public Collection<BurrowRoom> getRooms( ) {
 		return rooms.values( );
@@ -74,6 +148,14 @@ public class Burrow {
 		return hallway[ x ];
 	}
 	
+	/**
+	 * @return The bit mask of hallway occupation, bit x is set iff an apod is
+	 *   at hallway position x
+	 */
+	public long getHallwayMask( ) {
+		return hallmask;
+	}
+	
 	/**
 	 * Returns the room that belongs to the apod's family
 	 * 
@@ -84,6 +166,100 @@ public class Burrow {
 		return rooms.get( apod.family );
 	}
 	
+	/**
+	 * Creates a deep copy of the burrow in its current configuration, with its
+	 * own rooms and Apods so that it can be modified independently
+	 * 
+	 * @return The copy of the burrow
+	 */
+	public Burrow copy( ) {
+		final Map<ApodFamily, BurrowRoom> newrooms = new HashMap<>( );
+		for( final BurrowRoom r : rooms.values( ) )
+			newrooms.put( r.family, new BurrowRoom( r.family, r.size, r.door ) );
+		
+		// copy the apods in the hallway
+		final Set<Apod> newapods = new HashSet<>( );
+		for( int x = 0; x < hallsize; x++ ) {
+			if( hallway[x] == null ) continue;
+			newapods.add( new Apod( hallway[x].family.classification, new Coord2D( x, 0 ) ) );
+		}
+		
+		// and those in the rooms, bottom to top to preserve room ordering
+		for( final BurrowRoom r : rooms.values( ) ) {
+			final BurrowRoom newroom = newrooms.get( r.family );
+			for( int d = roomsize - 1; d >= 0; d-- ) {
+				final Apod a = r.getApod( d );
+				if( a == null ) continue;
+				
+				final Apod apod = new Apod( a.family.classification, new Coord2D( r.door, d + 1 ) );
+				apod.enterRoom( newroom, false );
+				newapods.add( apod );
+			}
+		}
+		
+		return new Burrow( hallsize, roomsize, newrooms, newapods );
+	}
+	
+	/**
+	 * Returns a compact hash of the current burrow configuration. Apods of the
+	 * same family are interchangeable, hence two burrows that only differ in
+	 * the identity of same-family Apods will have the same hash.
+	 * 
+	 * @return The (incrementally maintained) Zobrist hash of the burrow state
+	 */
+	public long getStateHash( ) {
+		return statehash;
+	}
+	
+	/**
+	 * Looks up the distance between a room slot and a hallway position
+	 * 
+	 * @param room The room index, i.e. the ordinal of its family
+	 * @param depth The depth within the room, 0 for the slot next to the door
+	 * @param x The hallway position
+	 * @return The number of steps between the room slot and hallway position
+	 */
+	public int getSteps( final int room, final int depth, final int x ) {
+		return steps[ room * roomsize + depth ][ x ];
+	}
+	
+	/**
+	 * Looks up the hallway positions that need to be free to walk between the
+	 * door of a room and the hallway position
+	 * 
+	 * @param room The room index, i.e. the ordinal of its family
+	 * @param x The hallway position
+	 * @return The bit mask of the hallway positions from the door (inclusive)
+	 *   to x (exclusive)
+	 */
+	public long getPathMask( final int room, final int x ) {
+		return pathmask[ room ][ x ];
+	}
+	
+	/**
+	 * @param lo The lowest position
+	 * @param hi The highest position
+	 * @return The bit mask with all bits lo to hi (inclusive) set
+	 */
+	private static long range( final int lo, final int hi ) {
+		if( hi < lo ) return 0;
+		return (-1L >>> (63 - hi)) & (-1L << lo);
+	}
+	
+	/**
+	 * Determines the cell index of a burrow position, used to index the
+	 * Zobrist keys. Hallway positions are numbered first, followed by all the
+	 * room slots per room.
+	 * 
+	 * @param x The horizontal position
+	 * @param y The vertical position, 0 for hallway or room depth + 1
+	 * @return The cell index
+	 */
+	private int getCell( final int x, final int y ) {
+		if( y == 0 ) return x;
+		return hallsize + door2room[ x ] * roomsize + (y - 1);
+	}
+	
 	/**
 	 * Execute the given move
 	 * 
@@ -93,16 +269,23 @@ public class Burrow {
 	public void execute( final ApodMove move, final boolean undo ) {
 		final Apod apod = move.apod;
 		final ApodMove m = !undo ? move : move.undo( ); 
+		
+		// update the state hash to reflect the move
+		final long[] z1 = zobrist[ getCell( m.origin.x, m.origin.y ) ];
+		final long[] z2 = zobrist[ getCell( m.target.x, m.target.y ) ];
+		statehash ^= z1[ apod.family.ordinal( ) ] ^ z2[ apod.family.ordinal( ) ];
 				
 		// check the type of move
 		if( m.toHallway( ) ) {
 			// move to a hallway position
 			hallway[ m.target.x ] = apod;
+			hallmask |= 1L << m.target.x;
 			apod.leaveRoom( );
 			apod.setPosition( m.target );
 		} else {
 			// move it into a room
 			hallway[ m.origin.x ] = null;
+			hallmask &= ~(1L << m.origin.x);
 			apod.enterRoom( m.getRoom( ), !undo );
 			apod.setPosition( m.target );
 		}
@@ -0,0 +1,383 @@
+package challenges.day23.apods;
+
+/**
+ * Primitive, bit-packed representation of a Burrow's state. The encoding
+ * describes the (immutable) layout of a burrow and stores the contents of
+ * every hallway position and room slot in a small long array, a few bits per
+ * cell. For the regular burrows the whole state fits in one or two longs.
+ *
+ * A cell contains 0 when it is empty, or the room index + 1 of the family of
+ * the Apod that occupies it. Hallway positions are numbered first, followed
+ * by the room slots per room (from the door downwards).
+ *
+ * Moves are encoded in a single long that contains the origin cell, target
+ * cell and energy cost of the move. The energy is stored in the most
+ * significant bits so that sorting moves orders them by energy.
+ *
+ * @author Joris
+ */
+public class BurrowEncoding {
+	/** The hallway size */
+	public final int hallsize;
+	
+	/** The room size (depth) */
+	public final int roomsize;
+	
+	/** The number of rooms */
+	public final int rooms;
+	
+	/** The number of cells in the burrow */
+	public final int cells;
+	
+	/** The number of longs required to store a state */
+	public final int words;
+	
+	/** The number of bits per cell */
+	private final int bits;
+	
+	/** The bit mask to retrieve a single cell value */
+	private final long cellmask;
+	
+	/** The word in which every cell is stored */
+	private final int[] cellword;
+	
+	/** The bit offset of every cell within its word */
+	private final int[] cellshift;
+	
+	/** The door position of every room */
+	private final int[] doors;
+	
+	/** The bit mask of all free-standing hallway positions, i.e. not in front of a door */
+	private final long standmask;
+	
+	/** The number of steps between every room slot and hallway position, indexed by slot * hallsize + x */
+	private final int[] steps;
+	
+	/** The hallway positions from every room door (inclusive) to every hallway position (exclusive), indexed by room * hallsize + x */
+	private final long[] pathmask;
+	
+	/** The energy consumption per step for the family of every room */
+	private final int[] energy;
+	
+	/**
+	 * Creates the encoding for the layout of the given burrow
+	 *
+	 * @param burrow The burrow to encode
+	 */
+	public BurrowEncoding( final Burrow burrow ) {
+		this.hallsize = burrow.hallsize;
+		this.roomsize = burrow.roomsize;
+		this.rooms = burrow.getRooms( ).size( );
+		this.cells = hallsize + rooms * roomsize;
+		
+		// determine the number of bits required per cell, do not let cells
+		// straddle words
+		int b = 1;
+		while( (1 << b) < rooms + 1 ) b++;
+		this.bits = b;
+		this.cellmask = (1L << bits) - 1;
+		final int cellsperword = 64 / bits;
+		this.words = (cells + cellsperword - 1) / cellsperword;
+		
+		cellword = new int[ cells ];
+		cellshift = new int[ cells ];
+		for( int c = 0; c < cells; c++ ) {
+			cellword[c] = c / cellsperword;
+			cellshift[c] = (c % cellsperword) * bits;
+		}
+		
+		// store the room layout, the room index is the family ordinal
+		doors = new int[ rooms ];
+		energy = new int[ rooms ];
+		long doormask = 0;
+		for( final BurrowRoom r : burrow.getRooms( ) ) {
+			final int idx = r.family.ordinal( );
+			doors[ idx ] = r.door;
+			energy[ idx ] = r.family.energy;
+			doormask |= 1L << r.door;
+		}
+		standmask = ((1L << hallsize) - 1) & ~doormask;
+		
+		// copy the distance and path tables of the burrow into flat arrays
+		steps = new int[ rooms * roomsize * hallsize ];
+		pathmask = new long[ rooms * hallsize ];
+		for( int r = 0; r < rooms; r++ )
+			for( int x = 0; x < hallsize; x++ ) {
+				pathmask[ r * hallsize + x ] = burrow.getPathMask( r, x );
+				for( int d = 0; d < roomsize; d++ )
+					steps[ (r * roomsize + d) * hallsize + x ] = burrow.getSteps( r, d, x );
+			}
+	}
+	
+	/**
+	 * Encodes the current state of the burrow
+	 *
+	 * @param burrow The burrow to encode, must have the same layout
+	 * @return The packed state
+	 */
+	public long[] encode( final Burrow burrow ) {
+		final long[] state = new long[ words ];
+		for( int x = 0; x < hallsize; x++ ) {
+			final Apod a = burrow.getHallway( x );
+			if( a != null ) set( state, x, a.family.ordinal( ) + 1 );
+		}
+		
+		for( final BurrowRoom r : burrow.getRooms( ) )
+			for( int d = 0; d < roomsize; d++ ) {
+				final Apod a = r.getApod( d );
+				if( a != null ) set( state, getRoomCell( r.family.ordinal( ), d ), a.family.ordinal( ) + 1 );
+			}
+		
+		return state;
+	}
+	
+	/**
+	 * @param room The room index
+	 * @param depth The depth within the room
+	 * @return The cell index of the room slot
+	 */
+	public int getRoomCell( final int room, final int depth ) {
+		return hallsize + room * roomsize + depth;
+	}
+	
+	/**
+	 * Reads a single cell
+	 *
+	 * @param state The packed state
+	 * @param cell The cell index
+	 * @return The value of the cell, 0 for empty or the room index + 1 of the
+	 *   occupying Apod's family
+	 */
+	public int get( final long[] state, final int cell ) {
+		return (int)((state[ cellword[ cell ] ] >>> cellshift[ cell ]) & cellmask);
+	}
+	
+	/**
+	 * Writes a single cell
+	 *
+	 * @param state The packed state
+	 * @param cell The cell index
+	 * @param value The new cell value
+	 */
+	public void set( final long[] state, final int cell, final int value ) {
+		final int w = cellword[ cell ];
+		final int s = cellshift[ cell ];
+		state[ w ] = (state[ w ] & ~(cellmask << s)) | ((long)value << s);
+	}
+	
+	/**
+	 * Applies the move to the state, in place
+	 *
+	 * @param state The packed state
+	 * @param move The encoded move
+	 */
+	public void apply( final long[] state, final long move ) {
+		final int from = getMoveOrigin( move );
+		final int to = getMoveTarget( move );
+		set( state, to, get( state, from ) );
+		set( state, from, 0 );
+	}
+	
+	/**
+	 * Reverts the move on the state, in place
+	 *
+	 * @param state The packed state
+	 * @param move The encoded move that was applied
+	 */
+	public void undo( final long[] state, final long move ) {
+		final int from = getMoveOrigin( move );
+		final int to = getMoveTarget( move );
+		set( state, from, get( state, to ) );
+		set( state, to, 0 );
+	}
+	
+	/**
+	 * Generates all possible moves from the given state and writes them into
+	 * the buffer. The buffer should be large enough to hold all moves, i.e.
+	 * (rooms + 1) * hallsize entries suffice.
+	 *
+	 * @param state The packed state
+	 * @param buffer The buffer to write moves into
+	 * @param maxcost Only moves that cost less than this are generated
+	 * @return The number of moves generated
+	 */
+	public int generateMoves( final long[] state, final long[] buffer, final long maxcost ) {
+		int n = 0;
+		
+		// determine the hallway occupation once, so that every path check is a
+		// single mask test
+		long hallmask = 0;
+		for( int x = 0; x < hallsize; x++ )
+			if( get( state, x ) != 0 ) hallmask |= 1L << x;
+		final long free = standmask & ~hallmask;
+		
+		// moves out of the rooms into the hallway
+		for( int r = 0; r < rooms; r++ ) {
+			// find the top occupant of the room and check if the room still
+			// contains Apods that do not belong there
+			int top = -1;
+			boolean settled = true;
+			for( int d = roomsize - 1; d >= 0; d-- ) {
+				final int v = get( state, getRoomCell( r, d ) );
+				if( v == 0 ) break;
+				top = d;
+				if( v != r + 1 ) settled = false;
+			}
+			if( top == -1 || settled ) continue;
+			
+			final int from = getRoomCell( r, top );
+			final int e = energy[ get( state, from ) - 1 ];
+			final int row = (r * roomsize + top) * hallsize;
+			
+			// try all free hallway positions with a clear path from the door
+			long targets = free;
+			while( targets != 0 ) {
+				final int x = Long.numberOfTrailingZeros( targets );
+				targets &= targets - 1;
+				if( (hallmask & pathmask[ r * hallsize + x ]) != 0 ) continue;
+				
+				final long cost = (long)steps[ row + x ] * e;
+				if( cost < maxcost ) buffer[ n++ ] = encodeMove( from, x, cost );
+			}
+		}
+		
+		// moves from the hallway into the home room
+		long occupied = hallmask;
+		while( occupied != 0 ) {
+			final int x = Long.numberOfTrailingZeros( occupied );
+			occupied &= occupied - 1;
+			final int v = get( state, x );
+			
+			// check if the room only contains family members and has space
+			final int r = v - 1;
+			int slot = roomsize - 1;
+			while( slot >= 0 && get( state, getRoomCell( r, slot ) ) == v ) slot--;
+			if( slot < 0 || get( state, getRoomCell( r, slot ) ) != 0 ) continue;
+			
+			// check if the path to the door is clear
+			if( (hallmask & pathmask[ r * hallsize + x ]) != 0 ) continue;
+			
+			final long cost = (long)steps[ (r * roomsize + slot) * hallsize + x ] * energy[ r ];
+			if( cost < maxcost ) buffer[ n++ ] = encodeMove( x, getRoomCell( r, slot ), cost );
+		}
+		
+		return n;
+	}
+	
+	/**
+	 * Checks whether all Apods are in their home rooms
+	 *
+	 * @param state The packed state
+	 * @return True iff every room slot is filled by its own family
+	 */
+	public boolean isOrganised( final long[] state ) {
+		for( int r = 0; r < rooms; r++ )
+			for( int d = 0; d < roomsize; d++ )
+				if( get( state, getRoomCell( r, d ) ) != r + 1 ) return false;
+		return true;
+	}
+	
+	/**
+	 * Computes a 64-bit hash of the packed state
+	 *
+	 * @param state The packed state
+	 * @return The hash value
+	 */
+	public long hash( final long[] state ) {
+		return hash( state, 0 );
+	}
+	
+	/**
+	 * Computes a 64-bit hash of a packed state that is stored at the given
+	 * offset within a larger array
+	 * 
+	 * @param data The array that contains the packed state
+	 * @param offset The offset of the first word of the state
+	 * @return The hash value
+	 */
+	public long hash( final long[] data, final int offset ) {
+		long h = 0;
+		for( int i = 0; i < words; i++ )
+			h = (h ^ data[ offset + i ]) * 0x9E3779B97F4A7C15L;
+		
+		// finalise so that all bits of the state affect all bits of the hash
+		h ^= h >>> 33;
+		h *= 0xFF51AFD7ED558CCDL;
+		h ^= h >>> 33;
+		h *= 0xC4CEB9FE1A85EC53L;
+		h ^= h >>> 33;
+		return h;
+	}
+	
+	/**
+	 * @param room The room index
+	 * @return The door position of the room
+	 */
+	public int getDoor( final int room ) {
+		return doors[ room ];
+	}
+	
+	/**
+	 * @param room The room index
+	 * @return The energy per step of the family that belongs to the room
+	 */
+	public int getEnergy( final int room ) {
+		return energy[ room ];
+	}
+	
+	/**
+	 * Encodes a move into a single long
+	 *
+	 * @param from The origin cell
+	 * @param to The target cell
+	 * @param cost The energy cost of the move
+	 * @return The encoded move
+	 */
+	public static long encodeMove( final int from, final int to, final long cost ) {
+		return (cost << 32) | ((long)to << 16) | from;
+	}
+	
+	/** @return The origin cell of the encoded move */
+	public static int getMoveOrigin( final long move ) { return (int)(move & 0xFFFF); }
+	
+	/** @return The target cell of the encoded move */
+	public static int getMoveTarget( final long move ) { return (int)((move >>> 16) & 0xFFFF); }
+	
+	/** @return The energy cost of the encoded move */
+	public static long getMoveEnergy( final long move ) { return move >>> 32; }
+	
+	/**
+	 * Outputs the packed state in the same visual format as the Burrow
+	 *
+	 * @param state The packed state
+	 * @return The visual representation of the state
+	 */
+	public String toString( final long[] state ) {
+		String res = "";
+		for( int i = 0 ; i < hallsize + 2; i++ ) res += "#";
+		res += "\n#";
+		for( int x = 0; x < hallsize; x++ ) res += toChar( get( state, x ) );
+		res += "#";
+		
+		for( int d = 0; d < roomsize; d++ ) {
+			final char[] todraw = new char[ hallsize ];
+			for( int i = 0; i < todraw.length; i++ ) todraw[i] = d == 0 ? '#' : ' ';
+			for( int r = 0; r < rooms; r++ ) {
+				todraw[ doors[ r ] - 1 ] = '#';
+				todraw[ doors[ r ] ] = toChar( get( state, getRoomCell( r, d ) ) );
+				todraw[ doors[ r ] + 1 ] = '#';
+			}
+			res += "\n" + (d == 0 ? '#' : ' ') + new String( todraw ) + (d == 0 ? '#' : ' ');
+		}
+		
+		return res;
+	}
+	
+	/**
+	 * @param value The cell value
+	 * @return The character that represents the cell value
+	 */
+	private char toChar( final int value ) {
+		return value == 0 ? '.' : ApodFamily.values( )[ value - 1 ].classification;
+	}
+}
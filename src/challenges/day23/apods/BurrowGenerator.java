@@ -0,0 +1,292 @@
+package challenges.day23.apods;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random, valid Burrow layouts of arbitrary size. A valid layout
+ * has one room per family and exactly as many Apods of every family as there
+ * are slots in a room.
+ * 
+ * Layouts can be generated in two ways: by scrambling an organised burrow
+ * through a random sequence of reversed Apod moves, which guarantees that the
+ * burrow can be organised again, or by randomly shuffling the Apods over all
+ * room slots, which may result in unsolvable burrows.
+ * 
+ * @author Joris
+ */
+public class BurrowGenerator {
+	/** The number of random walks to perform per generated layout */
+	private static final int WALKS = 100;
+	
+	/** The random number generator */
+	private final Random rand;
+	
+	/**
+	 * Creates a new generator
+	 * 
+	 * @param seed The seed for the random number generator
+	 */
+	public BurrowGenerator( final long seed ) {
+		this.rand = new Random( seed );
+	}
+	
+	/**
+	 * Generates a random, solvable burrow
+	 * 
+	 * @param rooms The number of rooms (and families)
+	 * @param depth The depth of every room
+	 * @param padding The number of extra hallway positions at both ends
+	 * @return The burrow
+	 */
+	public Burrow generate( final int rooms, final int depth, final int padding ) {
+		return Burrow.fromStringList( generateLayout( rooms, depth, padding ) );
+	}
+	
+	/**
+	 * Generates a random, solvable burrow layout in the input format that is
+	 * accepted by Burrow.fromStringList. The layout is obtained by performing
+	 * a number of random reversed moves on the organised burrow, hence it can
+	 * always be organised again. Such random walks tend to end quickly, so
+	 * the most scrambled result out of a number of walks is returned.
+	 * 
+	 * @param rooms The number of rooms (and families)
+	 * @param depth The depth of every room
+	 * @param padding The number of extra hallway positions at both ends of the
+	 *   hallway, in addition to the regular two
+	 * @return The list of strings that visually describe the burrow
+	 */
+	public List<String> generateLayout( final int rooms, final int depth, final int padding ) {
+		validate( rooms, depth, padding );
+		
+		final int hallsize = 2 * rooms + 3 + 2 * padding;
+		char[][] best = null;
+		int bestmisplaced = -1;
+		for( int i = 0; i < WALKS; i++ ) {
+			final char[][] slots = scramble( rooms, depth, padding );
+			if( slots == null ) continue;
+			
+			// count the Apods that are not in their home room
+			int misplaced = 0;
+			for( int r = 0; r < rooms; r++ )
+				for( int d = 0; d < depth; d++ )
+					if( slots[r][d] != ApodFamily.values( )[ r ].classification ) misplaced++;
+			
+			if( misplaced > bestmisplaced ) {
+				best = slots;
+				bestmisplaced = misplaced;
+			}
+		}
+		
+		// extremely unlikely, but try again if all walks got stuck
+		if( best == null ) return generateLayout( rooms, depth, padding );
+		return toLayout( best, hallsize, padding );
+	}
+	
+	/**
+	 * Scrambles the organised burrow by a random walk of reversed moves
+	 * 
+	 * @param rooms The number of rooms
+	 * @param depth The room depth
+	 * @param padding The hallway padding
+	 * @return The room slots per room, top to bottom, after scrambling or
+	 *   null if the walk got stuck with Apods in the hallway
+	 */
+	private char[][] scramble( final int rooms, final int depth, final int padding ) {
+		final char[] hall = new char[ 2 * rooms + 3 + 2 * padding ];
+		final char[][] slots = new char[ rooms ][ depth ];
+		
+		// start from the organised burrow
+		for( int x = 0; x < hall.length; x++ ) hall[x] = '.';
+		for( int r = 0; r < rooms; r++ )
+			for( int d = 0; d < depth; d++ )
+				slots[r][d] = ApodFamily.values( )[ r ].classification;
+		
+		// perform random reversed moves, afterwards keep on moving until the
+		// hallway is empty again. If no more moves can be reversed with an
+		// empty hallway, the burrow is in a valid starting state already
+		final int steps = 4 * rooms * depth;
+		int moved = 0;
+		while( moved < steps || !isEmpty( hall ) ) {
+			if( !reverseMove( hall, slots, padding, moved < steps ) ) return isEmpty( hall ) ? slots : null;
+			if( ++moved > 100 * steps ) return null;
+		}
+		
+		return slots;
+	}
+	
+	/**
+	 * Generates a random burrow layout by shuffling all Apods over the room
+	 * slots. The resulting burrow is not guaranteed to be solvable.
+	 * 
+	 * @param rooms The number of rooms (and families)
+	 * @param depth The depth of every room
+	 * @param padding The number of extra hallway positions at both ends of the
+	 *   hallway, in addition to the regular two
+	 * @return The list of strings that visually describe the burrow
+	 */
+	public List<String> generateShuffledLayout( final int rooms, final int depth, final int padding ) {
+		validate( rooms, depth, padding );
+		
+		// shuffle the apods over all room slots
+		final List<Character> apods = new ArrayList<>( rooms * depth );
+		for( int r = 0; r < rooms; r++ )
+			for( int d = 0; d < depth; d++ )
+				apods.add( ApodFamily.values( )[ r ].classification );
+		Collections.shuffle( apods, rand );
+		
+		final char[][] slots = new char[ rooms ][ depth ];
+		for( int r = 0; r < rooms; r++ )
+			for( int d = 0; d < depth; d++ )
+				slots[r][d] = apods.get( d * rooms + r );
+		
+		return toLayout( slots, 2 * rooms + 3 + 2 * padding, padding );
+	}
+	
+	/**
+	 * Performs a single random move in reverse, i.e. a move that could have
+	 * been made to get to the current state. These are moves from an Apod's
+	 * home room into the hallway, provided that the room only contains family
+	 * members, and moves from the hallway into any room that has space, as
+	 * long as the room still contains other families afterwards.
+	 * 
+	 * The reversed moves are biased towards emptying the hallway as it fills
+	 * up, to keep it from getting stuck, and towards filling it otherwise so
+	 * that also the bottom room slots get scrambled.
+	 * 
+	 * @param hall The hallway positions, '.' for empty
+	 * @param slots The room slots per room, top to bottom, '.' for empty
+	 * @param padding The hallway padding
+	 * @param keep True to keep at least one Apod in the hallway if possible,
+	 *   as the walk may get stuck on an empty hallway
+	 * @return True if a move has been made, false if no move was possible
+	 */
+	private boolean reverseMove( final char[] hall, final char[][] slots, final int padding, final boolean keep ) {
+		final List<int[]> tohall = new ArrayList<>( );
+		final List<int[]> toroom = new ArrayList<>( );
+		
+		for( int r = 0; r < slots.length; r++ ) {
+			final int door = padding + 2 + 2 * r;
+			final char fam = ApodFamily.values( )[ r ].classification;
+			final int top = top( slots[r] );
+			
+			// the top Apod can leave its home room if all below are family
+			boolean home = top < slots[r].length;
+			for( int d = top; d < slots[r].length && home; d++ ) home = slots[r][d] == fam;
+			
+			// Apods in the hallway can enter the room if there is space and the
+			// room does not become settled
+			final boolean space = top > 0;
+			boolean foreign = false;
+			for( int d = top; d < slots[r].length; d++ ) foreign |= slots[r][d] != fam;
+			
+			for( int dx = -1; dx <= 1; dx += 2 )
+				for( int x = door + dx; x >= 0 && x < hall.length && hall[x] == '.'; x += dx ) {
+					if( isDoor( x, padding, slots.length ) ) continue;
+					if( home ) tohall.add( new int[] { r, x } );
+				}
+			
+			if( !space ) continue;
+			for( int dx = -1; dx <= 1; dx += 2 )
+				for( int x = door + dx; x >= 0 && x < hall.length; x += dx ) {
+					if( hall[x] == '.' ) continue;
+					if( foreign || hall[x] != fam ) toroom.add( new int[] { x, r } );
+					break;
+				}
+		}
+		
+		// prefer emptying the hallway when it contains many Apods
+		int inhall = 0;
+		for( final char c : hall ) if( c != '.' ) inhall++;
+		final int capacity = hall.length - slots.length;
+		final boolean fill = toroom.isEmpty( ) || (!tohall.isEmpty( ) && (rand.nextInt( capacity ) >= inhall || (keep && inhall <= 1)));
+		if( fill && tohall.isEmpty( ) ) return false;
+		
+		if( fill ) {
+			final int[] m = tohall.get( rand.nextInt( tohall.size( ) ) );
+			final int top = top( slots[ m[0] ] );
+			hall[ m[1] ] = slots[ m[0] ][ top ];
+			slots[ m[0] ][ top ] = '.';
+		} else {
+			final int[] m = toroom.get( rand.nextInt( toroom.size( ) ) );
+			slots[ m[1] ][ top( slots[ m[1] ] ) - 1 ] = hall[ m[0] ];
+			hall[ m[0] ] = '.';
+		}
+		return true;
+	}
+	
+	/**
+	 * @param room The room slots, top to bottom
+	 * @return The index of the top most occupied slot, the room size if empty
+	 */
+	private static int top( final char[] room ) {
+		int d = 0;
+		while( d < room.length && room[d] == '.' ) d++;
+		return d;
+	}
+	
+	/**
+	 * @param x The hallway position
+	 * @param padding The hallway padding
+	 * @param rooms The number of rooms
+	 * @return True if the position is in front of a room door
+	 */
+	private static boolean isDoor( final int x, final int padding, final int rooms ) {
+		final int p = x - padding - 2;
+		return p >= 0 && p % 2 == 0 && p / 2 < rooms;
+	}
+	
+	/**
+	 * @param hall The hallway
+	 * @return True if no Apods are in the hallway
+	 */
+	private static boolean isEmpty( final char[] hall ) {
+		for( final char c : hall ) if( c != '.' ) return false;
+		return true;
+	}
+	
+	/**
+	 * Outputs the room contents in the input format
+	 * 
+	 * @param slots The room slots per room, top to bottom
+	 * @param hallsize The size of the hallway
+	 * @param padding The hallway padding
+	 * @return The list of strings that visually describe the burrow
+	 */
+	private static List<String> toLayout( final char[][] slots, final int hallsize, final int padding ) {
+		final int rooms = slots.length;
+		final int depth = slots[0].length;
+		
+		// rooms are separated by a single wall, with two free hallway positions
+		// plus padding at either end of the hallway
+		final List<String> layout = new ArrayList<>( depth + 3 );
+		layout.add( "#".repeat( hallsize + 2 ) );
+		layout.add( "#" + ".".repeat( hallsize ) + "#" );
+		for( int d = 0; d < depth; d++ ) {
+			final String edge = d == 0 ? "#" : " ";
+			String line = edge.repeat( padding + 2 ) + "#";
+			for( int r = 0; r < rooms; r++ )
+				line += slots[r][d] + "#";
+			if( d == 0 ) line += edge.repeat( padding + 2 );
+			layout.add( line );
+		}
+		layout.add( " ".repeat( padding + 2 ) + "#".repeat( 2 * rooms + 1 ) );
+		
+		return layout;
+	}
+	
+	/**
+	 * Validates the burrow dimensions
+	 * 
+	 * @param rooms The number of rooms
+	 * @param depth The room depth
+	 * @param padding The hallway padding
+	 */
+	private static void validate( final int rooms, final int depth, final int padding ) {
+		if( rooms < 1 || rooms > ApodFamily.values( ).length ) throw new IllegalArgumentException( "Invalid number of rooms: " + rooms + " (at most " + ApodFamily.values( ).length + ")" );
+		if( depth < 1 ) throw new IllegalArgumentException( "Invalid room depth: " + depth );
+		if( padding < 0 ) throw new IllegalArgumentException( "Invalid hallway padding: " + padding );
+	}
+}
@@ -124,6 +124,22 @@ public class BurrowRoom {
 		return true;
 	}
 	
+	/** @return The family of apods that this room belongs to */
+	public ApodFamily getFamily( ) { return family; }
+	
+	/**
+	 * @return The number of apods at the bottom of the room that are of the
+	 *   family of this room, i.e. that are home and will never move again
+	 */
+	public int getHomeCount( ) {
+		int count = 0;
+		for( int i = size - 1; i >= size - occupants; i-- ) {
+			if( apods[i].family != family ) break;
+			count++;
+		}
+		return count;
+	}
+	
 	/** @return The number of apods in the room currently */
 	public int getOccupied( ) { return occupants; }
 	
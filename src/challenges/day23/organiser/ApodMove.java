@@ -25,6 +25,9 @@ public class ApodMove {
 	/** The energy consumption of the move */
 	public final long energy;
 	
+	/** The undo move, created upon first request */
+	private ApodMove undomove;
+	
 	/**
 	 * Creates a new Room move for the Apod
 	 * 
@@ -66,12 +69,14 @@ public class ApodMove {
 	}
 	
 	/**
-	 * Creates a undo move from this one
+	 * Creates a undo move from this one, the result is cached so that moves
+	 * can be undone repeatedly without allocation
 	 * 
 	 * @return The ApodMove that will have the opposite effect of the move
 	 */
 	public ApodMove undo( ) {
-		return new ApodMove( apod, target, origin, room, -energy );
+		if( undomove == null ) undomove = new ApodMove( apod, target, origin, room, -energy );
+		return undomove;
 	}
 	
 	/** @return True if this is a move to the hallway */
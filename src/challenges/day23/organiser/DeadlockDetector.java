@@ -0,0 +1,139 @@
+package challenges.day23.organiser;
+
+import challenges.day23.apods.Apod;
+import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
+import challenges.day23.apods.BurrowRoom;
+
+/**
+ * Recognises burrow configurations from which the burrow can never be
+ * organised anymore, so that the search can prune them immediately rather
+ * than exploring them until it runs out of moves. Two kinds of deadlocks are
+ * detected:
+ * 
+ * - Two Apods in the hallway that need to pass each other to get to their
+ *   rooms. Apods in the hallway only move into their room, hence neither
+ *   will ever move out of the other's way.
+ *   
+ * - A room that still contains Apods of other families, while the hallway
+ *   around its door has no free position to stop at and the nearest Apods on
+ *   both sides of the door can never move away. This is the case for Apods
+ *   that belong in the room itself, or for Apods that need to pass one of
+ *   those.
+ * 
+ * @author Joris
+ */
+public class DeadlockDetector {
+	/**
+	 * Checks whether the burrow is in a deadlocked configuration
+	 * 
+	 * @param burrow The burrow to check
+	 * @return True iff the burrow can certainly not be organised anymore
+	 */
+	public boolean isDeadlocked( final Burrow burrow ) {
+		// two apods in the hallway that need to pass each other
+		for( int y = 0; y < burrow.hallsize; y++ ) {
+			final Apod b = burrow.getHallway( y );
+			if( b == null ) continue;
+			
+			final int door = burrow.getApodRoom( b ).getDoorX( );
+			for( int x = door + 1; x < y; x++ ) {
+				final Apod a = burrow.getHallway( x );
+				if( a != null && burrow.getApodRoom( a ).getDoorX( ) > y ) return true;
+			}
+		}
+		
+		// rooms that can never be cleared of other families
+		for( final BurrowRoom r : burrow.getRooms( ) ) {
+			if( r.getOccupied( ) == r.getHomeCount( ) ) continue;
+			
+			// find the nearest apods on both sides of the door
+			final int door = r.getDoorX( );
+			int left = door - 1;
+			while( left >= 0 && burrow.getHallway( left ) == null ) left--;
+			int right = door + 1;
+			while( right < burrow.hallsize && burrow.getHallway( right ) == null ) right++;
+			if( left < 0 || right >= burrow.hallsize ) continue;
+			
+			// are there any positions in between to stop at?
+			int free = right - left - 1;
+			for( final BurrowRoom q : burrow.getRooms( ) )
+				if( q.getDoorX( ) > left && q.getDoorX( ) < right ) free--;
+			if( free > 0 ) continue;
+			
+			// both apods need to be stuck
+			final BurrowRoom lroom = burrow.getApodRoom( burrow.getHallway( left ) );
+			final BurrowRoom rroom = burrow.getApodRoom( burrow.getHallway( right ) );
+			if( isStuck( lroom == r, rroom == r, lroom.getDoorX( ) > right, rroom.getDoorX( ) < left ) ) return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Checks whether the packed burrow state is deadlocked
+	 * 
+	 * @param enc The burrow encoding
+	 * @param state The packed state
+	 * @return True iff the burrow can certainly not be organised anymore
+	 */
+	public boolean isDeadlocked( final BurrowEncoding enc, final long[] state ) {
+		// two apods in the hallway that need to pass each other
+		for( int y = 0; y < enc.hallsize; y++ ) {
+			final int vb = enc.get( state, y );
+			if( vb == 0 ) continue;
+			
+			final int door = enc.getDoor( vb - 1 );
+			for( int x = door + 1; x < y; x++ ) {
+				final int va = enc.get( state, x );
+				if( va != 0 && enc.getDoor( va - 1 ) > y ) return true;
+			}
+		}
+		
+		// rooms that can never be cleared of other families
+		for( int r = 0; r < enc.rooms; r++ ) {
+			boolean foreign = false;
+			for( int d = 0; d < enc.roomsize && !foreign; d++ ) {
+				final int v = enc.get( state, enc.getRoomCell( r, d ) );
+				foreign = v != 0 && v != r + 1;
+			}
+			if( !foreign ) continue;
+			
+			// find the nearest apods on both sides of the door
+			final int door = enc.getDoor( r );
+			int left = door - 1;
+			while( left >= 0 && enc.get( state, left ) == 0 ) left--;
+			int right = door + 1;
+			while( right < enc.hallsize && enc.get( state, right ) == 0 ) right++;
+			if( left < 0 || right >= enc.hallsize ) continue;
+			
+			// are there any positions in between to stop at?
+			int free = right - left - 1;
+			for( int q = 0; q < enc.rooms; q++ )
+				if( enc.getDoor( q ) > left && enc.getDoor( q ) < right ) free--;
+			if( free > 0 ) continue;
+			
+			// both apods need to be stuck
+			final int lroom = enc.get( state, left ) - 1;
+			final int rroom = enc.get( state, right ) - 1;
+			if( isStuck( lroom == r, rroom == r, enc.getDoor( lroom ) > right, enc.getDoor( rroom ) < left ) ) return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Determines whether the two Apods that enclose the door of a room that
+	 * needs to be cleared are both stuck. An Apod is stuck if it belongs in
+	 * that room, or if it needs to pass the other Apod while that one is stuck.
+	 * 
+	 * @param lhome True if the left Apod belongs in the room
+	 * @param rhome True if the right Apod belongs in the room
+	 * @param lpass True if the left Apod needs to pass the right one
+	 * @param rpass True if the right Apod needs to pass the left one
+	 * @return True iff both Apods will never move
+	 */
+	private static boolean isStuck( final boolean lhome, final boolean rhome, final boolean lpass, final boolean rpass ) {
+		return (lhome || (lpass && rhome)) && (rhome || (rpass && lhome));
+	}
+}
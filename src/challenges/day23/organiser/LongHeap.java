@@ -0,0 +1,80 @@
+package challenges.day23.organiser;
+
+import java.util.Arrays;
+
+/**
+ * Simple binary min-heap of primitive long values, used as priority queue
+ * without boxing its entries. Callers typically encode both the priority and
+ * a payload into a single long, with the priority in the most significant
+ * bits.
+ * 
+ * @author Joris
+ */
+public class LongHeap {
+	/** The heap array */
+	private long[] heap;
+	
+	/** The number of elements in the heap */
+	private int size;
+	
+	/**
+	 * Creates a new heap
+	 * 
+	 * @param capacity The initial capacity
+	 */
+	public LongHeap( final int capacity ) {
+		heap = new long[ Math.max( capacity, 16 ) ];
+		size = 0;
+	}
+	
+	/**
+	 * Adds a value to the heap
+	 * 
+	 * @param value The value to add
+	 */
+	public void add( final long value ) {
+		if( size == heap.length ) heap = Arrays.copyOf( heap, heap.length * 2 );
+		
+		// sift up from the last position
+		int i = size++;
+		while( i > 0 ) {
+			final int p = (i - 1) >>> 1;
+			if( heap[p] <= value ) break;
+			heap[i] = heap[p];
+			i = p;
+		}
+		heap[i] = value;
+	}
+	
+	/**
+	 * Removes and returns the smallest value in the heap
+	 * 
+	 * @return The smallest value
+	 */
+	public long poll( ) {
+		if( size == 0 ) throw new RuntimeException( "Cannot poll from an empty heap" );
+		
+		final long result = heap[0];
+		final long last = heap[ --size ];
+		
+		// sift the last element down from the root
+		int i = 0;
+		while( true ) {
+			int c = 2 * i + 1;
+			if( c >= size ) break;
+			if( c + 1 < size && heap[c + 1] < heap[c] ) c++;
+			if( last <= heap[c] ) break;
+			heap[i] = heap[c];
+			i = c;
+		}
+		heap[i] = last;
+		
+		return result;
+	}
+	
+	/** @return The number of elements in the heap */
+	public int size( ) { return size; }
+	
+	/** @return True iff the heap contains no elements */
+	public boolean isEmpty( ) { return size == 0; }
+}
@@ -0,0 +1,74 @@
+package challenges.day23.organiser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Reusable list of moves that is allocated once per search depth, so that
+ * move generation does not create new lists for every burrow state. The
+ * buffer is cleared and refilled every time the search visits its depth.
+ * 
+ * @author Joris
+ */
+public class MoveBuffer extends AbstractList<ApodMove> {
+	/** The moves in the buffer */
+	private ApodMove[] moves;
+	
+	/** The number of moves currently in the buffer */
+	private int size;
+	
+	/**
+	 * Creates a new move buffer
+	 * 
+	 * @param capacity The initial capacity of the buffer
+	 */
+	public MoveBuffer( final int capacity ) {
+		this.moves = new ApodMove[ Math.max( capacity, 1 ) ];
+		this.size = 0;
+	}
+	
+	@Override
+	public boolean add( final ApodMove move ) {
+		if( size == moves.length ) moves = Arrays.copyOf( moves, moves.length * 2 );
+		moves[ size++ ] = move;
+		return true;
+	}
+	
+	@Override
+	public ApodMove get( final int index ) {
+		if( index < 0 || index >= size ) throw new IndexOutOfBoundsException( index );
+		return moves[ index ];
+	}
+	
+	@Override
+	public int size( ) {
+		return size;
+	}
+	
+	@Override
+	public void clear( ) {
+		// keep references, they are overwritten on the next use of the buffer
+		size = 0;
+	}
+	
+	/**
+	 * Sorts the buffer in place using a stable insertion sort, which does not
+	 * allocate a temporary array like the default List implementation does.
+	 * Move lists are small, so this is also the fastest option.
+	 * 
+	 * @param c The comparator that determines the order
+	 */
+	@Override
+	public void sort( final Comparator<? super ApodMove> c ) {
+		for( int i = 1; i < size; i++ ) {
+			final ApodMove m = moves[i];
+			int j = i - 1;
+			while( j >= 0 && c.compare( moves[j], m ) > 0 ) {
+				moves[j + 1] = moves[j];
+				j--;
+			}
+			moves[j + 1] = m;
+		}
+	}
+}
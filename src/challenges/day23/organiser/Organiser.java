@@ -1,13 +1,18 @@
 package challenges.day23.organiser;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import challenges.day23.apods.Apod;
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 import challenges.day23.apods.BurrowRoom;
 import challenges.day23.organiser.heuristics.energy.EnergyHeuristic;
 import challenges.day23.organiser.heuristics.move.MoveHeuristic;
@@ -16,9 +21,45 @@ public class Organiser {
 	/** The burrow to organise */
 	protected final Burrow burrow;
 	
-	/** Pre-computed array of illegal spaces, due to the door blocking it */
-	private int[] doors;
+	/** Pre-computed bit mask of illegal spaces, due to the door blocking it */
+	private final long doormask;
+	
+	/** The room index for every hallway position in front of a door */
+	private final int[] door2room;
+	
+	/** The number of cells (hallway positions and room slots) in the burrow */
+	private final int cells;
+	
+	/** The cache of moves per apod, origin and target cell */
+	private ApodMove[] movecache;
+	
+	/** The move buffers per search depth */
+	private final MoveBuffer[] buffers;
 
+	/** The search algorithm to use */
+	protected SearchMode mode;
+	
+	/** The packed encoding of the burrow, created upon organising in a packed mode */
+	protected BurrowEncoding encoding;
+	
+	/** The number of worker threads in parallel mode */
+	protected int parallelism;
+	
+	/** The depth of the move tree up to which moves are split into parallel tasks */
+	protected int splitdepth;
+	
+	/** The callback to notify of improved solutions, null for none */
+	protected SolutionCallback callback;
+	
+	/** The time (in ms since epoch) at which the anytime search stops */
+	private long deadline;
+	
+	/** True if the search has been interrupted by the deadline */
+	private boolean timedout;
+	
+	/** The least lower bound of all states that were not explored due to the deadline */
+	private long frontierbound;
+	
 	/** Verbose mode */
 	protected boolean verbose;
 	
@@ -30,6 +71,12 @@ public class Organiser {
 	
 	/** The (ADMISSABLE) heuristic for early solution discarding */
 	protected EnergyHeuristic Henergy;
+	
+	/** The transposition table to skip already explored states, null for none */
+	protected TranspositionTable transpositions;
+	
+	/** The detector to prune deadlocked states, null for none */
+	protected DeadlockDetector deadlocks;
 
 	/**
 	 * Creates a new organiser
@@ -39,14 +86,27 @@ public class Organiser {
 	public Organiser( final Burrow burrow ) {
 		this.burrow = burrow;
 		this.verbose = false;
+		this.mode = SearchMode.BranchAndBound;
+		this.parallelism = Runtime.getRuntime( ).availableProcessors( );
+		this.splitdepth = 2;
+		this.deadline = Long.MAX_VALUE;
 		
 		// compute illegal positions in hallway
 		final Collection<BurrowRoom> rooms = burrow.getRooms( );
-		doors = new int[ rooms.size( ) ];
+		long mask = 0;
+		door2room = new int[ burrow.hallsize ];
 		int i = 0;
-		for( final BurrowRoom r : rooms )
-			doors[ i++ ] = r.getDoorX( );
-
+		for( final BurrowRoom r : rooms ) {
+			mask |= 1L << r.getDoorX( );
+			door2room[ r.getDoorX( ) ] = i++;
+		}
+		doormask = mask;
+		cells = burrow.hallsize + rooms.size( ) * burrow.roomsize;
+		
+		// every apod moves at most twice, allocate move buffers for every depth
+		buffers = new MoveBuffer[ 2 * burrow.getApodCount( ) + 1 ];
+		for( int d = 0; d < buffers.length; d++ )
+			buffers[ d ] = new MoveBuffer( (rooms.size( ) + 1) * burrow.hallsize );
 	}
 	
 	/**
@@ -58,6 +118,29 @@ public class Organiser {
 		this.verbose = v;
 	}
 	
+	/**
+	 * Sets the search algorithm that is used to organise the burrow
+	 * 
+	 * @param mode The search mode
+	 */
+	public void setSearchMode( final SearchMode mode ) {
+		this.mode = mode;
+	}
+	
+	/**
+	 * Configures the parallel search mode
+	 * 
+	 * @param threads The number of worker threads to use
+	 * @param depth The number of levels of the move tree to split into tasks
+	 */
+	public void setParallelism( final int threads, final int depth ) {
+		if( threads < 1 ) throw new IllegalArgumentException( "Invalid number of threads: " + threads );
+		if( depth < 0 ) throw new IllegalArgumentException( "Invalid split depth: " + depth );
+		
+		this.parallelism = threads;
+		this.splitdepth = depth;
+	}
+	
 	/**
 	 * Sets the heuristic for next move ordering
 	 * 
@@ -76,6 +159,41 @@ public class Organiser {
 		this.Henergy = H;
 	}
 	
+	/**
+	 * Sets the transposition table that is used to recognise burrow states
+	 * that have already been reached with less or equal energy through a
+	 * different ordering of moves
+	 * 
+	 * @param table The transposition table, null to disable
+	 */
+	public void setTranspositionTable( final TranspositionTable table ) {
+		this.transpositions = table;
+	}
+	
+	/**
+	 * Sets the detector that recognises deadlocked burrow states, i.e. states
+	 * that can never lead to a solution, so that they are pruned immediately
+	 * 
+	 * @param detector The deadlock detector, null to disable
+	 */
+	public void setDeadlockDetector( final DeadlockDetector detector ) {
+		this.deadlocks = detector;
+	}
+	
+	/**
+	 * Sets the callback that is notified of every improved solution
+	 * 
+	 * @param callback The callback, null to disable
+	 */
+	public void setSolutionCallback( final SolutionCallback callback ) {
+		this.callback = callback;
+	}
+	
+	/** @return The statistics of the last organiser run */
+	public OrganiserStats getStats( ) {
+		return stats;
+	}
+	
 	/**
 	 * Organises all the Apods in the burrow so that they are in their correct
 	 * rooms, i.e. the one assigned to their family
@@ -84,10 +202,41 @@ public class Organiser {
 	 * rooms
 	 */
 	public long organise( ) {
+		return run( Long.MAX_VALUE ).leastenergy;
+	}
+	
+	/**
+	 * Anytime version of the organiser that stops searching at the deadline
+	 * and returns the best solution found until then. The solution contains a
+	 * lower bound, derived from the energy heuristic over all unexplored
+	 * states, from which its optimality gap is determined. The best-first
+	 * search only finds a solution when it completes, but still returns a
+	 * lower bound otherwise.
+	 * 
+	 * @param deadline The time (in ms since epoch) at which to stop
+	 * @return The best solution found before the deadline, optimal if the
+	 *   search completed in time
+	 */
+	public Solution organiseUntil( final long deadline ) {
+		return run( deadline );
+	}
+	
+	/**
+	 * Performs the actual organiser run in the configured search mode
+	 * 
+	 * @param rununtil The deadline for the search, Long.MAX_VALUE for none
+	 * @return The best solution found
+	 */
+	private Solution run( final long rununtil ) {
 		// perform a branch-and-bound evaluation of all possible moves
 		final Solution solution = new Solution( );
 		final Stack<ApodMove> moves = new Stack<>( );
 		stats = new OrganiserStats( );
+		if( transpositions != null ) transpositions.clear( );
+		deadline = rununtil;
+		timedout = false;
+		frontierbound = Long.MAX_VALUE;
+		if( Henergy != null ) solution.lowerbound = Henergy.estimateMinimalEnergy( burrow );
 
 		if( verbose ) {
 			System.out.println( "---[ Organiser ]---" );
@@ -98,8 +247,26 @@ public class Organiser {
 		
 			// run the organise algorithm
 			stats.starttime = System.currentTimeMillis( );
-			organise( solution, moves, 0 );
+			stats.allocstart = getAllocatedBytes( );
+			switch( mode ) {
+				case BranchAndBound: 
+					organise( solution, moves, 0 ); 
+					break;
+				
+				case PackedBranchAndBound: 
+					organisePacked( solution ); 
+					break;
+				
+				case BestFirst:
+					organiseBestFirst( solution );
+					break;
+				
+				case ParallelBranchAndBound:
+					organiseParallel( solution );
+					break;
+			}
 			stats.endtime = System.currentTimeMillis( );
+			stats.allocend = getAllocatedBytes( );
 		
 		} catch( Exception e ) {
 			if( !verbose ) throw e;
@@ -116,14 +283,41 @@ public class Organiser {
 			throw e;
 		}
 		
+		// the solution is optimal unless we ran out of time, in which case the
+		// bound is determined by the best unexplored state
+		if( !timedout ) solution.lowerbound = solution.leastenergy;
+		else solution.lowerbound = Math.max( solution.lowerbound, Math.min( frontierbound, solution.leastenergy ) );
+		
 		if( verbose ) {
-			System.out.println( "Solution found: " + solution.leastenergy );
+			System.out.println( (timedout ? "Deadline reached, best solution: " : "Solution found: ") + solution );
 			System.out.println(  );
 			System.out.println( stats );
 			System.out.println(  );
 		}
 		
-		return solution.leastenergy;
+		return solution;
+	}
+	
+	/**
+	 * Checks if the deadline has passed, only every so many states to limit
+	 * the overhead of querying the time
+	 * 
+	 * @return True if the search should stop
+	 */
+	private boolean checkDeadline( ) {
+		if( !timedout && deadline != Long.MAX_VALUE && (stats.stateCount & 0x3FF) == 0 )
+			timedout = System.currentTimeMillis( ) >= deadline;
+		return timedout;
+	}
+	
+	/**
+	 * Notifies about an improved solution
+	 * 
+	 * @param solution The improved solution
+	 */
+	private void notifyImproved( final Solution solution ) {
+		if( verbose ) System.out.println( ">> New solution found: " + solution );
+		if( callback != null ) callback.improved( solution );
 	}
 	
 	
@@ -140,11 +334,34 @@ public class Organiser {
 	private void organise( Solution currbest, final Stack<ApodMove> moves, final long currenergycost ) {
 		stats.stateCount++;
 		
+		// stop exploring if we are out of time, but keep track of the lower bound
+		// of this unexplored state
+		if( checkDeadline( ) ) {
+			frontierbound = Math.min( frontierbound, currenergycost + (Henergy != null ? Henergy.estimateMinimalEnergy( burrow ) : 0) );
+			return;
+		}
+		
 		// stop pursuing the current solution if its energy costs exceeds the
 		// currently best minimum value
 		// (fail-safe, should not hit this due to action selection)
 		if( currenergycost >= currbest.leastenergy ) return;
 		
+		// check if we have been in this exact configuration before with less or
+		// equal energy costs, all further moves have been explored from there
+		if( transpositions != null ) {
+			if( transpositions.checkAndStore( burrow.getStateHash( ), currenergycost ) ) {
+				stats.ttHits++;
+				return;
+			}
+			stats.ttMisses++;
+		}
+		
+		// no need to explore any further if this state can never be organised
+		if( deadlocks != null && deadlocks.isDeadlocked( burrow ) ) {
+			stats.discardedDeadlock++;
+			return;
+		}
+		
 		// do a quick computation to see if, even when ignoring all rules, the
 		// current configuration will lead to a lower energy consumption. I.e. this
 		// uses an admissable heuristic to discard bad solutions early on
@@ -158,19 +375,19 @@ public class Organiser {
 		
 		// try all available next moves until we reach the desired configuration
 		// but only consider those moves 
-		final List<ApodMove> nextmoves = generateNextMoves( currbest.leastenergy - currenergycost );
+		final MoveBuffer nextmoves = buffers[ moves.size( ) ];
+		generateNextMoves( currbest.leastenergy - currenergycost, nextmoves );
 		if( nextmoves.size( ) == 0 ) {
 			// check if we have a solution now, if not simply return. This path is
 			// infeasible
-			for( final Apod apod : burrow.getApods( ) ) 
-				if( !apod.isHome( ) ) {
+			for( int i = 0; i < burrow.getApodCount( ); i++ ) 
+				if( !burrow.getApod( i ).isHome( ) ) {
 					stats.deadends++;
 					return;
 				}
 			
-			// new best solution!
-			currbest.set( moves, currenergycost );
-			if( verbose ) System.out.println( ">> New solution found: " + currbest );
+			// new best solution! (another worker may have found a better one)
+			if( currbest.offer( moves, currenergycost ) ) notifyImproved( currbest );
 			return;
 		}
 				
@@ -178,7 +395,8 @@ public class Organiser {
 		if( Hmove != null ) Hmove.apply( burrow, nextmoves );
 		
 		// and perform the moves in their heuristic order!
-		for( final ApodMove move : nextmoves ) {
+		for( int i = 0; i < nextmoves.size( ); i++ ) {
+			final ApodMove move = nextmoves.get( i );
 			moves.add( move );
 			burrow.execute( move, false );
 			stats.executed++;
@@ -187,121 +405,522 @@ public class Organiser {
 
 			burrow.execute( move, true );
 			moves.pop( );
+			
+			// out of time, determine the bound of the moves we will not explore
+			if( timedout ) {
+				for( int j = i + 1; j < nextmoves.size( ); j++ ) {
+					final ApodMove m = nextmoves.get( j );
+					burrow.execute( m, false );
+					frontierbound = Math.min( frontierbound, currenergycost + m.energy + (Henergy != null ? Henergy.estimateMinimalEnergy( burrow ) : 0) );
+					burrow.execute( m, true );
+				}
+				return;
+			}
+		}
+	}
+	
+	/**
+	 * Performs the branch-and-bound search in parallel. The top levels of the
+	 * move tree are split into fork-join tasks, below the split depth every
+	 * task runs the sequential search. Every thread has a single worker
+	 * organiser with its own copy of the burrow, onto which a task replays the
+	 * moves that lead to its state. All workers share the solution so that
+	 * they prune against the global best energy found so far.
+	 * 
+	 * @param currbest The current known best solution
+	 */
+	private void organiseParallel( final Solution currbest ) {
+		// transposition tables are not thread-safe, give every worker its own
+		// share of the table capacity
+		final int ttsize = transpositions != null ? Math.max( transpositions.capacity( ) / parallelism, 1 << 16 ) : 0;
+		final List<Organiser> created = new ArrayList<>( parallelism );
+		final ThreadLocal<Organiser> workers = new ThreadLocal<Organiser>( ) {
+			@Override
+			protected Organiser initialValue( ) {
+				final Organiser worker = createWorker( burrow.copy( ) );
+				worker.transpositions = ttsize > 0 ? new TranspositionTable( ttsize ) : null;
+				synchronized( created ) {
+					created.add( worker );
+				}
+				return worker;
+			}
+		};
+		
+		final ForkJoinPool pool = new ForkJoinPool( parallelism );
+		try {
+			pool.invoke( new OrganiseTask( currbest, new Stack<>( ), 0, 0, workers ) );
+		} finally {
+			pool.shutdown( );
+		}
+		
+		// collect the statistics of the workers and whether any of them ran out
+		// of time before its subtrees were fully explored
+		for( final Organiser worker : created ) {
+			stats.add( worker.stats );
+			if( worker.timedout ) {
+				timedout = true;
+				frontierbound = Math.min( frontierbound, worker.frontierbound );
+			}
+		}
+	}
+	
+	/**
+	 * Creates a worker organiser for the given burrow copy that shares this
+	 * organiser's heuristics
+	 * 
+	 * @param copy The copy of the burrow the worker operates on
+	 * @return The worker organiser
+	 */
+	private Organiser createWorker( final Burrow copy ) {
+		final Organiser worker = new Organiser( copy );
+		worker.verbose = verbose;
+		worker.Hmove = Hmove;
+		worker.Henergy = Henergy;
+		worker.deadlocks = deadlocks;
+		worker.callback = callback;
+		worker.deadline = deadline;
+		worker.frontierbound = Long.MAX_VALUE;
+		worker.stats = new OrganiserStats( );
+		return worker;
+	}
+	
+	/**
+	 * Executes a move that was generated on another copy of the burrow, by
+	 * taking the same move of the Apod at its origin from this organiser's
+	 * move cache
+	 * 
+	 * @param move The move on the other copy of the burrow
+	 * @return The corresponding move on this burrow, which has been executed
+	 */
+	private ApodMove replay( final ApodMove move ) {
+		for( int i = 0; i < burrow.getApodCount( ); i++ ) {
+			final Apod apod = burrow.getApod( i );
+			if( apod.getX( ) != move.origin.x || apod.getY( ) != move.origin.y ) continue;
+			
+			final ApodMove m = getMove( i, apod, move.target.x, move.target.y, move.target.y == 0 ? null : burrow.getApodRoom( apod ) );
+			burrow.execute( m, false );
+			return m;
+		}
+		throw new IllegalStateException( "There is no Apod at the origin of move " + move );
+	}
+	
+	/**
+	 * Fork-join task that explores the subtree of a single burrow state. Above
+	 * the split depth the next moves are forked as new tasks, below it the
+	 * sequential branch-and-bound is run by the worker organiser of the thread.
+	 */
+	private class OrganiseTask extends RecursiveAction {
+		/** Serial version UID */
+		private static final long serialVersionUID = 1L;
+		
+		/** The globally shared best solution */
+		private final Solution currbest;
+		
+		/** The moves performed to reach this state */
+		private final Stack<ApodMove> moves;
+		
+		/** The energy cost of those moves */
+		private final long energy;
+		
+		/** The depth of this task in the move tree */
+		private final int depth;
+		
+		/** The worker organiser of every thread */
+		private final ThreadLocal<Organiser> workers;
+		
+		/**
+		 * Creates a new task
+		 * 
+		 * @param currbest The shared best solution
+		 * @param moves The moves that lead to this state
+		 * @param energy The energy cost of the moves
+		 * @param depth The depth in the move tree
+		 * @param workers The worker organiser of every thread
+		 */
+		private OrganiseTask( final Solution currbest, final Stack<ApodMove> moves, final long energy, final int depth, final ThreadLocal<Organiser> workers ) {
+			this.currbest = currbest;
+			this.moves = moves;
+			this.energy = energy;
+			this.depth = depth;
+			this.workers = workers;
+		}
+		
+		@Override
+		protected void compute( ) {
+			// bring the burrow of this thread's worker into the state of the task
+			final Organiser worker = workers.get( );
+			final Stack<ApodMove> path = new Stack<>( );
+			for( final ApodMove m : moves ) path.add( worker.replay( m ) );
+			
+			final List<OrganiseTask> tasks = depth < splitdepth ? split( worker, path ) : null;
+			if( tasks == null ) worker.organise( currbest, path, energy );
+			
+			// undo the moves before forking, the forked tasks may run on this
+			// thread and replay their own moves onto the same burrow
+			for( int i = path.size( ) - 1; i >= 0; i-- ) worker.burrow.execute( path.get( i ), true );
+			if( tasks != null ) invokeAll( tasks );
+		}
+		
+		/**
+		 * Generates the next moves and creates a task per move
+		 * 
+		 * @param worker The worker organiser of this thread
+		 * @param path The moves that have been replayed onto its burrow
+		 * @return The list of tasks, null if there are no next moves
+		 */
+		private List<OrganiseTask> split( final Organiser worker, final Stack<ApodMove> path ) {
+			final MoveBuffer nextmoves = worker.buffers[ path.size( ) ];
+			nextmoves.clear( );
+			if( energy < currbest.leastenergy ) worker.generateNextMoves( currbest.leastenergy - energy, nextmoves );
+			
+			// let the sequential search deal with a pruned or end state, it also
+			// counts the state
+			if( nextmoves.size( ) == 0 ) return null;
+			worker.stats.stateCount++;
+			if( Hmove != null ) Hmove.apply( worker.burrow, nextmoves );
+			
+			final List<OrganiseTask> tasks = new ArrayList<>( nextmoves.size( ) );
+			for( final ApodMove move : nextmoves ) {
+				worker.stats.executed++;
+				final Stack<ApodMove> m = new Stack<>( );
+				m.addAll( path );
+				m.add( move );
+				tasks.add( new OrganiseTask( currbest, m, energy + move.energy, depth + 1, workers ) );
+			}
+			return tasks;
+		}
+	}
+	
+	/**
+	 * Performs the branch-and-bound search on the bit-packed burrow state.
+	 * Moves are generated into buffers that are allocated once per depth so
+	 * that no objects are created during the search.
+	 * 
+	 * @param currbest The current known best solution
+	 */
+	private void organisePacked( final Solution currbest ) {
+		encoding = new BurrowEncoding( burrow );
+		
+		// every Apod moves at most twice: into the hallway and into its room
+		final int maxdepth = 2 * burrow.getApods( ).size( ) + 1;
+		final long[][] buffers = new long[ maxdepth ][ (encoding.rooms + 1) * encoding.hallsize ];
+		final long[] path = new long[ maxdepth ];
+		
+		organisePacked( currbest, encoding.encode( burrow ), buffers, path, 0, 0 );
+	}
+	
+	/**
+	 * The branch-and-bound algorithm on the packed burrow state, follows the
+	 * same logic as its object-based counterpart
+	 * 
+	 * @param currbest The current known best solution
+	 * @param state The packed burrow state, modified in place
+	 * @param buffers The move buffers per depth
+	 * @param path The moves that we have performed until now
+	 * @param depth The current search depth
+	 * @param currenergycost The energy cost of performing the moves on the path
+	 */
+	private void organisePacked( final Solution currbest, final long[] state, final long[][] buffers, final long[] path, final int depth, final long currenergycost ) {
+		stats.stateCount++;
+		
+		if( checkDeadline( ) ) {
+			frontierbound = Math.min( frontierbound, currenergycost + (Henergy != null ? Henergy.estimateMinimalEnergy( encoding, state ) : 0) );
+			return;
+		}
+		
+		if( currenergycost >= currbest.leastenergy ) return;
+		
+		// skip states that have been reached with less energy before
+		if( transpositions != null ) {
+			if( transpositions.checkAndStore( encoding.hash( state ), currenergycost ) ) {
+				stats.ttHits++;
+				return;
+			}
+			stats.ttMisses++;
+		}
+		
+		if( deadlocks != null && deadlocks.isDeadlocked( encoding, state ) ) {
+			stats.discardedDeadlock++;
+			return;
+		}
+		
+		// discard the state if it cannot improve the best solution
+		if( Henergy != null ) {
+			final long minestimate = Henergy.estimateMinimalEnergy( encoding, state );
+			if( currenergycost + minestimate >= currbest.leastenergy  )	{
+				stats.discardedHEnergy++;
+				return;
+			}
+		}
+		
+		// generate the next moves in the buffer for this depth
+		final long[] nextmoves = buffers[ depth ];
+		final int n = encoding.generateMoves( state, nextmoves, currbest.leastenergy - currenergycost );
+		if( n == 0 ) {
+			if( !encoding.isOrganised( state ) ) {
+				stats.deadends++;
+				return;
+			}
+			
+			// new best solution!
+			currbest.set( path, depth, currenergycost );
+			notifyImproved( currbest );
+			return;
+		}
+		
+		if( Hmove != null ) Hmove.apply( encoding, state, nextmoves, n );
+		
+		for( int i = 0; i < n; i++ ) {
+			final long move = nextmoves[i];
+			path[ depth ] = move;
+			encoding.apply( state, move );
+			stats.executed++;
+			
+			organisePacked( currbest, state, buffers, path, depth + 1, currenergycost + BurrowEncoding.getMoveEnergy( move ) );
+			
+			encoding.undo( state, move );
+			
+			// out of time, determine the bound of the moves we will not explore
+			if( timedout ) {
+				for( int j = i + 1; j < n; j++ ) {
+					final long m = nextmoves[j];
+					encoding.apply( state, m );
+					frontierbound = Math.min( frontierbound, currenergycost + BurrowEncoding.getMoveEnergy( m ) + (Henergy != null ? Henergy.estimateMinimalEnergy( encoding, state ) : 0) );
+					encoding.undo( state, m );
+				}
+				return;
+			}
 		}
 	}
 	
 	/**
-	 * Generates all possible moves from the current state of the Burrow
+	 * Performs a best-first (A*) search on the packed burrow state. States are
+	 * expanded in order of their energy cost plus the estimate of the energy
+	 * heuristic, hence the first organised state that is expanded is optimal
+	 * as long as the heuristic is admissible. Nodes are reopened when a
+	 * cheaper path to them is found, so consistency is not required.
+	 * 
+	 * @param currbest The solution to store the result in
+	 */
+	private void organiseBestFirst( final Solution currbest ) {
+		encoding = new BurrowEncoding( burrow );
+		final StateStore store = new StateStore( encoding, 1 << 16 );
+		final LongHeap open = new LongHeap( 1 << 16 );
+		final long[] state = encoding.encode( burrow );
+		final long[] next = new long[ encoding.words ];
+		final long[] nextmoves = new long[ (encoding.rooms + 1) * encoding.hallsize ];
+		
+		// queue entries contain the priority in the upper and the node index in
+		// the lower 32 bits
+		final long h0 = Henergy != null ? Henergy.estimateMinimalEnergy( encoding, state ) : 0;
+		open.add( (h0 << 32) | store.add( state, 0, h0, -1, 0 ) );
+		
+		while( !open.isEmpty( ) ) {
+			final long entry = open.poll( );
+			final int node = (int)(entry & 0xFFFFFFFFL);
+			final long g = store.getEnergy( node );
+			
+			// skip entries that are outdated by a cheaper path or already expanded
+			if( store.isClosed( node ) || (entry >>> 32) != g + store.getEstimate( node ) ) continue;
+			store.close( node );
+			stats.stateCount++;
+			
+			// out of time, the least estimate in the queue bounds the optimum
+			if( checkDeadline( ) ) {
+				frontierbound = entry >>> 32;
+				return;
+			}
+			
+			store.getState( node, state );
+			if( encoding.isOrganised( state ) ) {
+				// reconstruct the moves that lead here
+				int depth = 0;
+				for( int n = node; store.getParent( n ) != -1; n = store.getParent( n ) ) depth++;
+				final long[] path = new long[ depth ];
+				for( int n = node; store.getParent( n ) != -1; n = store.getParent( n ) ) path[ --depth ] = store.getMove( n );
+				
+				currbest.set( path, path.length, g );
+				notifyImproved( currbest );
+				return;
+			}
+			
+			final int n = encoding.generateMoves( state, nextmoves, Long.MAX_VALUE );
+			if( n == 0 ) {
+				stats.deadends++;
+				continue;
+			}
+			
+			for( int i = 0; i < n; i++ ) {
+				final long move = nextmoves[i];
+				final long ng = g + BurrowEncoding.getMoveEnergy( move );
+				System.arraycopy( state, 0, next, 0, next.length );
+				encoding.apply( next, move );
+				stats.executed++;
+				
+				int child = store.find( next );
+				if( child == -1 ) {
+					// never queue states that cannot be organised
+					if( deadlocks != null && deadlocks.isDeadlocked( encoding, next ) ) {
+						stats.discardedDeadlock++;
+						continue;
+					}
+					
+					final long h = Henergy != null ? Henergy.estimateMinimalEnergy( encoding, next ) : 0;
+					child = store.add( next, ng, h, node, move );
+				} else if( ng < store.getEnergy( child ) ) {
+					store.update( child, ng, node, move );
+				} else {
+					stats.discardedClosed++;
+					continue;
+				}
+				
+				open.add( ((ng + store.getEstimate( child )) << 32) | child );
+			}
+		}
+	}
+	
+	/**
+	 * Generates all possible moves from the current state of the Burrow and
+	 * writes them into the given buffer. Reachability of hallway positions is
+	 * determined from the hallway occupation and door bit masks and moves are
+	 * taken from the move cache, hence no objects are allocated.
 	 * 
 	 * @param maxcost Prevent adding moves that will lead to non-optimal
 	 *   solutions anyway by restricting the cost it may incur
-	 * @return The list of all possible moves, empty if no more move is possible
-	 *   from the current burrow state
+	 * @param moves The buffer to write the moves into, it is cleared first.
+	 *   Empty if no more move is possible from the current burrow state
 	 */
-	private List<ApodMove> generateNextMoves( final long maxcost ) {
-		final List<ApodMove> moves = new ArrayList<>( );
+	private void generateNextMoves( final long maxcost, final MoveBuffer moves ) {
+		moves.clear( );
+		final long hallmask = burrow.getHallwayMask( );
 		
 		// add moves for all apods that are not already in their room
-		for( final Apod apod : burrow.getApods( ) ) {
+		for( int i = 0; i < burrow.getApodCount( ); i++ ) {
+			final Apod apod = burrow.getApod( i );
 			if( apod.isHome( ) ) continue;
 			
 			// is it currently in the hallway and wanting to move into a room?
 			if( apod.inHallway( ) ) {
 				// yes, get the room the apod wants to move into and check if it is possible
 				final BurrowRoom room = burrow.getApodRoom( apod );
-				final long roomenergy = checkRoomMove( apod, room );				
-				if( roomenergy != -1 && roomenergy < maxcost ) moves.add( new ApodMove( apod, room, roomenergy ) );
+				if( !room.canEnter( apod ) ) continue;
+				
+				// the path to the door, excluding its own position, should be free
+				if( (hallmask & burrow.getPathMask( room.getFamily( ).ordinal( ), apod.getX( ) )) != 0 ) continue;
+				
+				final ApodMove move = getMove( i, apod, room.getDoorX( ), room.getFirstAvailable( ) + 1, room );
+				if( move.energy < maxcost ) moves.add( move );
 			} else {
-				// no, get all the available hallway positions
-				for( int x = 0; x < burrow.hallsize; x++ ) {
-					final long hallenergy = checkHallMove( apod, x );
-					if( hallenergy != -1 && hallenergy < maxcost ) moves.add( new ApodMove( apod, x, hallenergy ) );
+				// no, cannot move the Apod if it is blocked by another Apod
+				if( apod.isBlockedInRoom( ) ) continue;
+				
+				// get all the reachable hallway positions that are not a door
+				long targets = getReachable( hallmask, apod.getX( ) ) & ~doormask;
+				while( targets != 0 ) {
+					final int x = Long.numberOfTrailingZeros( targets );
+					targets &= targets - 1;
+					
+					final ApodMove move = getMove( i, apod, x, 0, null );
+					if( move.energy < maxcost ) moves.add( move );
 				}
 			}
 		}
-		
-		return moves;
 	}
 	
-	
 	/**
-	 * Checks if the apod can move to the given hallway position and returns the
-	 * energy it will cost it to move. If not possible, -1 is returned
+	 * Determines the hallway positions that are reachable from the door, i.e.
+	 * the free segment of the hallway around the door
 	 * 
-	 * @param apod The apod to move
-	 * @param x The hallway x coordinate to move into
-	 * @return Energy required to move the Apod to the position, -1 for invalid
-	 *   target positions. Target positions are invalid because they are either
-	 *   illegal or unreachable due to other apods blocking the way  
+	 * @param hallmask The hallway occupation bit mask
+	 * @param door The position of the door
+	 * @return The bit mask of reachable hallway positions
 	 */
-	private long checkHallMove( final Apod apod, final int x ) {
-		// cannot move the Apod to the hallway if it is already in there
-		// or the target position is not even within the hallway
-		if( apod.inHallway( ) ) return -1;
-		if( x < 0 || x > burrow.hallsize ) return -1;
-		
-		// cannot move the Apod if it is in a room and blocked by another Apod
-		if( apod.isBlockedInRoom( ) ) return -1;
-		
-		// cannot move to a hallway position occupied by a door
-		for( int i = 0; i < doors.length; i++ )
-			if( x == doors[i] ) return -1;
-		
-		// cannot move if the hallway path is blocked
-		if( !canMove( apod.getX( ), x ) ) return -1;
-		
-		// the move is allowed, compute the energy cost of such a move
-		return apod.getEnergyConsumption( Math.abs( x - apod.getX( ) ), apod.getY( ) ); 
+	private long getReachable( final long hallmask, final int door ) {
+		// find the nearest occupied positions left and right of the door
+		final long left = hallmask & ((1L << door) - 1);
+		final long right = hallmask & ~((1L << (door + 1)) - 1);
+		final int lo = 64 - Long.numberOfLeadingZeros( left );
+		final int hi = Math.min( Long.numberOfTrailingZeros( right ), burrow.hallsize ) - 1;
+		return range( lo, hi );
+	}
+	
+	/**
+	 * @param lo The lowest position
+	 * @param hi The highest position
+	 * @return The bit mask with all bits lo to hi (inclusive) set
+	 */
+	private static long range( final int lo, final int hi ) {
+		if( hi < lo ) return 0;
+		return (-1L >>> (63 - hi)) & (-1L << lo);
 	}
 	
 	/**
-	 * Checks if the apod can move into its family room and returns the energy
-	 * it will cost it to move. If not possible, -1 is returned
+	 * Retrieves the move of the apod from its current position to the target
+	 * from the move cache. Moves only depend on the positions, hence they are
+	 * created once and reused throughout the search.
 	 * 
-	 * @param apod The apod to check if it can go home finally
-	 * @return The energy cost of going home, -1 if it is not possible
+	 * @param index The index of the apod in the burrow
+	 * @param apod The apod to move
+	 * @param tx The target horizontal position
+	 * @param ty The target vertical position, 0 for hallway moves
+	 * @param room The target room for room moves, null for hallway moves
+	 * @return The move
 	 */
-	private long checkRoomMove( final Apod apod, final BurrowRoom room ) {
-		// can only move into the room if it i in the hallway now
-		if( !apod.inHallway( ) ) return -1;
-				
-		// check if the room is available
-		if( !room.canEnter( apod ) ) return -1;
+	private ApodMove getMove( final int index, final Apod apod, final int tx, final int ty, final BurrowRoom room ) {
+		if( movecache == null ) movecache = new ApodMove[ burrow.getApodCount( ) * cells * cells ];
 		
-		// check if the path to the room is not blocked
-		if( !canMove( apod.getX( ), room.getDoorX( ) ) ) return -1;
-		
-		// the move is allowed, compute the energy cost of such a move
-		return apod.getEnergyConsumption( Math.abs( room.getDoorX( ) - apod.getX( ) ), room.getFirstAvailable( ) + 1 );	}
+		final int key = (index * cells + getCell( apod.getX( ), apod.getY( ) )) * cells + getCell( tx, ty );
+		ApodMove move = movecache[ key ];
+		if( move == null ) {
+			// look up the distance between the room slot and hallway position
+			final int steps = room == null 
+					? burrow.getSteps( apod.getRoom( ).getFamily( ).ordinal( ), apod.getY( ) - 1, tx )
+					: burrow.getSteps( room.getFamily( ).ordinal( ), ty - 1, apod.getX( ) );
+			final long energy = apod.getEnergyConsumption( steps );
+			move = room == null ? new ApodMove( apod, tx, energy ) : new ApodMove( apod, room, energy );
+			movecache[ key ] = move;
+		}
+		return move;
+	}
 	
 	/**
-	 * Checks if there is a free path in the hallway between from and to for any
-	 * apod to walk along
+	 * Determines the cell index of a burrow position for the move cache
 	 * 
-	 * @param from The starting position
-	 * @param to The target position 
-	 * @return True iff there is nothing blocking the path
+	 * @param x The horizontal position
+	 * @param y The vertical position, 0 for hallway or room depth + 1
+	 * @return The cell index
 	 */
-	private boolean canMove( final int from, final int to ) {		
-		// cannot move if any of the hallway positions along the way is blocked
-		final int dx = to > from ? 1 : -1;
-		for( int x = from + dx; x != to; x += dx )
-			if( burrow.getHallway( x ) != null ) return false;
-		
-		// and finally check target position
-		return burrow.getHallway( to ) == null;
+	private int getCell( final int x, final int y ) {
+		if( y == 0 ) return x;
+		return burrow.hallsize + door2room[ x ] * burrow.roomsize + (y - 1);
 	}
 
+	/**
+	 * @return The number of bytes allocated by the current thread so far, -1
+	 *   if the JVM does not support measuring this
+	 */
+	private static long getAllocatedBytes( ) {
+		final ThreadMXBean mx = ManagementFactory.getThreadMXBean( );
+		if( !(mx instanceof com.sun.management.ThreadMXBean) ) return -1;
+		return ((com.sun.management.ThreadMXBean)mx).getThreadAllocatedBytes( Thread.currentThread( ).getId( ) );
+	}
+	
 	/**
 	 * Organiser run stats
 	 */
-	private class OrganiserStats {
+	public class OrganiserStats {
 		/** The run start time */
 		private long starttime = -1;
 		
 		/** The run end time */
 		private long endtime = -1;
 		
+		/** The bytes allocated by the organising thread at the start of the run */
+		private long allocstart = -1;
+		
+		/** The bytes allocated by the organising thread at the end of the run */
+		private long allocend = -1;
+		
 		/** The number of burrow states evaluated */
 		private long stateCount = 0;
 		
@@ -314,6 +933,49 @@ public class Organiser {
 		/** The number of moves executed */
 		public long executed;
 		
+		/** The number of successors already reached with less energy (best-first) */
+		public long discardedClosed = 0;
+		
+		/** The number of states pruned by the transposition table */
+		public long ttHits = 0;
+		
+		/** The number of states not (cheaper) in the transposition table */
+		public long ttMisses = 0;
+		
+		/** The number of states pruned because they are deadlocked */
+		public long discardedDeadlock = 0;
+		
+		/** @return The run time in milliseconds, -1 if still running */
+		public long getRunTime( ) { return endtime == -1 ? -1 : endtime - starttime; }
+		
+		/** @return The number of burrow states evaluated */
+		public long getStateCount( ) { return stateCount; }
+		
+		/** @return The number of dead ends encountered */
+		public long getDeadEnds( ) { return deadends; }
+		
+		/** @return The number of states discarded due to the energy heuristic */
+		public long getDiscardedHEnergy( ) { return discardedHEnergy; }
+		
+		/** @return The number of states pruned because they are deadlocked */
+		public long getDiscardedDeadlock( ) { return discardedDeadlock; }
+		
+		/**
+		 * Adds the counters of the other statistics to these
+		 * 
+		 * @param other The statistics to add
+		 */
+		private void add( final OrganiserStats other ) {
+			stateCount += other.stateCount;
+			deadends += other.deadends;
+			discardedHEnergy += other.discardedHEnergy;
+			executed += other.executed;
+			discardedClosed += other.discardedClosed;
+			ttHits += other.ttHits;
+			ttMisses += other.ttMisses;
+			discardedDeadlock += other.discardedDeadlock;
+		}
+		
 		private String perc( final long x, final long y ) {
 			return " (" + String.format( "%1.2f", (double)x * 100.0 / (double)y ) + "%)";
 		}
@@ -326,10 +988,20 @@ public class Organiser {
 			String res = "";
 			res += "---[ Run statistics ]---";
 			res += "\nRun time (s): " + (endtime == -1 ? "(running)" : (endtime-starttime) );
+			if( allocstart != -1 && allocend != -1 )
+				res += "\nAllocated by organiser thread (KiB): " + (allocend - allocstart) / 1024;
 			res += "\nStates evaluated: " + stateCount;
 			res += "\nMoves executed: " + executed;
 			res += "\nDead ends: " + deadends;
 			res += "\nSolutions discarded based upon heuristic: " + discardedHEnergy + perc( discardedHEnergy, stateCount ); 
+			if( deadlocks != null )
+				res += "\nDeadlocked states pruned: " + discardedDeadlock + perc( discardedDeadlock, stateCount );
+			if( discardedClosed > 0 )
+				res += "\nSuccessors discarded as already reached: " + discardedClosed;
+			if( ttHits + ttMisses > 0 ) {
+				res += "\nTransposition hits: " + ttHits + perc( ttHits, ttHits + ttMisses );
+				res += "\nTransposition misses: " + ttMisses;
+			}
 			return res ;
 		}
 	}
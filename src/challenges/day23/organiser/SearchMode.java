@@ -0,0 +1,20 @@
+package challenges.day23.organiser;
+
+/**
+ * The available search algorithms of the Organiser
+ * 
+ * @author Joris
+ */
+public enum SearchMode {
+	/** Depth-first branch-and-bound over the Burrow and its Apod objects */
+	BranchAndBound,
+	
+	/** Depth-first branch-and-bound over the bit-packed burrow state */
+	PackedBranchAndBound,
+	
+	/** Best-first (A*) search over the bit-packed burrow state */
+	BestFirst,
+	
+	/** Depth-first branch-and-bound with the top levels run in parallel */
+	ParallelBranchAndBound;
+}
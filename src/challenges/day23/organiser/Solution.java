@@ -1,6 +1,7 @@
 package challenges.day23.organiser;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Stack;
 
@@ -11,15 +12,23 @@ public class Solution {
 	/** The sequential list of moves to perform */
 	protected List<ApodMove> bestmoves;
 	
-	/** The total energy consumption of this solution */
-	protected long leastenergy;
+	/** The sequential list of encoded moves, if found using the packed state */
+	protected long[] bestpackedmoves;
+	
+	/** The total energy consumption of this solution, shared between workers */
+	protected volatile long leastenergy;
+	
+	/** The lower bound on the energy of any solution */
+	protected long lowerbound;
 	
 	/**
 	 * Creates a new empty solution
 	 */
 	public Solution( ) {
 		this.bestmoves = null;
+		this.bestpackedmoves = null;
 		this.leastenergy = Long.MAX_VALUE;
+		this.lowerbound = 0;
 	}
 	
 	/**
@@ -28,18 +37,80 @@ public class Solution {
 	 * @param moves The list of moves to perform to get all Apods organised
 	 * @param energy The total energy consumption required to organise them
 	 */
-	public void set( final Stack<ApodMove> moves, final long energy ) {
+	public synchronized void set( final Stack<ApodMove> moves, final long energy ) {
 		if( energy >= leastenergy ) throw new RuntimeException( "Invalid update of solution (best: " + leastenergy + ", new best: " + energy + ")" );
 		
 		this.bestmoves = new ArrayList<>( moves );
 		this.leastenergy = energy;
 	}
 	
+	/**
+	 * Updates the Solution only if the energy improves upon the current best.
+	 * This check-and-set is atomic, so it can be used by parallel workers.
+	 * 
+	 * @param moves The list of moves to perform to get all Apods organised
+	 * @param energy The total energy consumption required to organise them
+	 * @return True if the solution was updated
+	 */
+	public synchronized boolean offer( final Stack<ApodMove> moves, final long energy ) {
+		if( energy >= leastenergy ) return false;
+		
+		set( moves, energy );
+		return true;
+	}
+	
+	/**
+	 * Updates the Solution to the best one found so far, using encoded moves
+	 * 
+	 * @param moves The buffer of encoded moves to perform
+	 * @param count The number of moves in the buffer
+	 * @param energy The total energy consumption required to organise them
+	 */
+	public synchronized void set( final long[] moves, final int count, final long energy ) {
+		if( energy >= leastenergy ) throw new RuntimeException( "Invalid update of solution (best: " + leastenergy + ", new best: " + energy + ")" );
+		
+		this.bestpackedmoves = Arrays.copyOf( moves, count );
+		this.leastenergy = energy;
+	}
+	
+	/** @return The total energy consumption of the solution */
+	public long getEnergy( ) {
+		return leastenergy;
+	}
+	
+	/** @return The lower bound on the energy consumption of any solution */
+	public long getLowerBound( ) {
+		return lowerbound;
+	}
+	
+	/**
+	 * @return The optimality gap, i.e. the fraction of the solution energy by
+	 *   which it may exceed the optimal solution. 0 for a proven optimal
+	 *   solution, 1 if there is no solution yet
+	 */
+	public double getGap( ) {
+		if( getMoveCount( ) == -1 ) return 1.0;
+		if( leastenergy == 0 ) return 0.0;
+		return (double)(leastenergy - Math.min( lowerbound, leastenergy )) / (double)leastenergy;
+	}
+	
+	/** @return True iff the solution has been proven optimal */
+	public boolean isOptimal( ) {
+		return getMoveCount( ) != -1 && lowerbound >= leastenergy;
+	}
+	
+	/** @return The number of moves in the solution, -1 if there is none */
+	public synchronized int getMoveCount( ) {
+		if( bestmoves != null ) return bestmoves.size( );
+		if( bestpackedmoves != null ) return bestpackedmoves.length;
+		return -1;
+	}
+	
 	/** @return The solution description */
 	@Override
 	public String toString( ) {
-		if( bestmoves == null ) return "(No solution yet)";
+		if( getMoveCount( ) == -1 ) return "(No solution yet)";
 		
-		return "[E: " + leastenergy + ", M: " + bestmoves.size( ) + "]";   
+		return "[E: " + leastenergy + ", M: " + getMoveCount( ) + (isOptimal( ) ? "" : ", gap: " + String.format( "%1.2f", getGap( ) * 100.0 ) + "%") + "]";   
 	}
 }
@@ -0,0 +1,19 @@
+package challenges.day23.organiser;
+
+/**
+ * Callback that is notified of every improved solution that the Organiser
+ * finds during its search
+ * 
+ * @author Joris
+ */
+public interface SolutionCallback {
+	/**
+	 * Called whenever the search finds a solution that improves upon the best
+	 * one found so far. This may be called from worker threads in the parallel
+	 * search mode.
+	 * 
+	 * @param solution The improved solution, its lower bound is that of the
+	 *   initial burrow state while the search is still running
+	 */
+	public void improved( final Solution solution );
+}
@@ -0,0 +1,201 @@
+package challenges.day23.organiser;
+
+import java.util.Arrays;
+
+import challenges.day23.apods.BurrowEncoding;
+
+/**
+ * Stores the packed burrow states that are discovered during a best-first
+ * search. Every state is assigned a node index under which its energy cost,
+ * heuristic estimate, parent node and the move from its parent are stored.
+ * States are looked up through an open-addressing hash table of node indices
+ * so that no objects are created per state.
+ * 
+ * @author Joris
+ */
+public class StateStore {
+	/** The encoding of the burrow states */
+	private final BurrowEncoding encoding;
+	
+	/** The number of longs per state */
+	private final int words;
+	
+	/** The packed states, words longs per node */
+	private long[] states;
+	
+	/** The least energy cost per node */
+	private long[] energy;
+	
+	/** The heuristic estimate per node */
+	private long[] estimate;
+	
+	/** The parent node index, -1 for the root */
+	private int[] parent;
+	
+	/** The move that lead from the parent to the node */
+	private long[] move;
+	
+	/** True if the node has been expanded with its current energy */
+	private boolean[] closed;
+	
+	/** The hash table of node indices + 1, 0 for empty slots */
+	private int[] table;
+	
+	/** The number of nodes stored */
+	private int size;
+	
+	/**
+	 * Creates a new state store
+	 * 
+	 * @param encoding The burrow encoding
+	 * @param capacity The initial node capacity
+	 */
+	public StateStore( final BurrowEncoding encoding, final int capacity ) {
+		this.encoding = encoding;
+		this.words = encoding.words;
+		
+		final int cap = Math.max( capacity, 16 );
+		states = new long[ cap * words ];
+		energy = new long[ cap ];
+		estimate = new long[ cap ];
+		parent = new int[ cap ];
+		move = new long[ cap ];
+		closed = new boolean[ cap ];
+		
+		int tsize = 16;
+		while( tsize < cap * 2 ) tsize <<= 1;
+		table = new int[ tsize ];
+		size = 0;
+	}
+	
+	/**
+	 * Finds the node index of the given state
+	 * 
+	 * @param state The packed state
+	 * @return The node index, -1 if the state is not stored
+	 */
+	public int find( final long[] state ) {
+		final int mask = table.length - 1;
+		for( int slot = (int)encoding.hash( state ) & mask; table[ slot ] != 0; slot = (slot + 1) & mask ) {
+			final int node = table[ slot ] - 1;
+			if( equals( node, state ) ) return node;
+		}
+		return -1;
+	}
+	
+	/**
+	 * Adds a new state to the store, the state must not be present already
+	 * 
+	 * @param state The packed state
+	 * @param e The energy cost to reach the state
+	 * @param h The heuristic estimate of the remaining energy
+	 * @param from The parent node index, -1 for the root
+	 * @param m The move from the parent node
+	 * @return The node index of the new state
+	 */
+	public int add( final long[] state, final long e, final long h, final int from, final long m ) {
+		if( size == energy.length ) grow( );
+		
+		final int node = size++;
+		System.arraycopy( state, 0, states, node * words, words );
+		energy[ node ] = e;
+		estimate[ node ] = h;
+		parent[ node ] = from;
+		move[ node ] = m;
+		closed[ node ] = false;
+		insert( node );
+		return node;
+	}
+	
+	/**
+	 * Updates the node with a cheaper way to reach it
+	 * 
+	 * @param node The node index
+	 * @param e The new energy cost
+	 * @param from The new parent node
+	 * @param m The move from the new parent
+	 */
+	public void update( final int node, final long e, final int from, final long m ) {
+		energy[ node ] = e;
+		parent[ node ] = from;
+		move[ node ] = m;
+		closed[ node ] = false;
+	}
+	
+	/**
+	 * Copies the state of the node into the target array
+	 * 
+	 * @param node The node index
+	 * @param target The array to copy the state into
+	 */
+	public void getState( final int node, final long[] target ) {
+		System.arraycopy( states, node * words, target, 0, words );
+	}
+	
+	/** @return The energy cost of the node */
+	public long getEnergy( final int node ) { return energy[ node ]; }
+	
+	/** @return The heuristic estimate of the node */
+	public long getEstimate( final int node ) { return estimate[ node ]; }
+	
+	/** @return The parent of the node, -1 for the root */
+	public int getParent( final int node ) { return parent[ node ]; }
+	
+	/** @return The move from the parent to the node */
+	public long getMove( final int node ) { return move[ node ]; }
+	
+	/** @return True iff the node has been expanded */
+	public boolean isClosed( final int node ) { return closed[ node ]; }
+	
+	/**
+	 * Marks the node as expanded
+	 * 
+	 * @param node The node index
+	 */
+	public void close( final int node ) { closed[ node ] = true; }
+	
+	/** @return The number of stored states */
+	public int size( ) { return size; }
+	
+	/**
+	 * Compares the stored state of the node with the given state
+	 * 
+	 * @param node The node index
+	 * @param state The packed state
+	 * @return True iff they are equal
+	 */
+	private boolean equals( final int node, final long[] state ) {
+		final int offset = node * words;
+		for( int i = 0; i < words; i++ )
+			if( states[ offset + i ] != state[i] ) return false;
+		return true;
+	}
+	
+	/**
+	 * Inserts the node into the hash table
+	 * 
+	 * @param node The node index
+	 */
+	private void insert( final int node ) {
+		final int mask = table.length - 1;
+		int slot = (int)encoding.hash( states, node * words ) & mask;
+		while( table[ slot ] != 0 ) slot = (slot + 1) & mask;
+		table[ slot ] = node + 1;
+	}
+	
+	/**
+	 * Doubles the node capacity and rebuilds the hash table
+	 */
+	private void grow( ) {
+		final int cap = energy.length * 2;
+		states = Arrays.copyOf( states, cap * words );
+		energy = Arrays.copyOf( energy, cap );
+		estimate = Arrays.copyOf( estimate, cap );
+		parent = Arrays.copyOf( parent, cap );
+		move = Arrays.copyOf( move, cap );
+		closed = Arrays.copyOf( closed, cap );
+		
+		table = new int[ table.length * 2 ];
+		for( int n = 0; n < size; n++ ) insert( n );
+	}
+}
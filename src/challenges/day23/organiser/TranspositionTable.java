@@ -0,0 +1,129 @@
+package challenges.day23.organiser;
+
+/**
+ * Bounded transposition table that stores the least energy with which a
+ * burrow configuration has been reached. Configurations are identified by
+ * their compact state hash, see Burrow.getStateHash( ).
+ *
+ * The table is organised in buckets of a fixed number of entries. Whenever a
+ * bucket is full, the least recently used entry is evicted to make room for
+ * the new one. Evicting an entry only loses pruning opportunities, it never
+ * affects the correctness of the search.
+ *
+ * @author Joris
+ */
+public class TranspositionTable {
+	/** The number of entries per bucket */
+	private static final int WAYS = 4;
+	
+	/** The state hash per entry */
+	private final long[] keys;
+	
+	/** The least energy seen per entry */
+	private final long[] energy;
+	
+	/** The last time the entry was used, 0 for empty entries */
+	private final long[] used;
+	
+	/** The bit mask to map a hash onto its bucket */
+	private final int bucketmask;
+	
+	/** The logical clock that is used to determine least recently used entries */
+	private long clock;
+	
+	/** The number of entries currently stored */
+	private int size;
+	
+	/** The number of entries that have been evicted */
+	private long evictions;
+	
+	/**
+	 * Creates a new transposition table that holds at most the specified
+	 * number of entries. The capacity is rounded up to the next power of two.
+	 *
+	 * @param capacity The maximum number of entries to store
+	 */
+	public TranspositionTable( final int capacity ) {
+		if( capacity < WAYS ) throw new IllegalArgumentException( "The table capacity should be at least " + WAYS );
+		
+		// round up to the next power of two number of buckets
+		int buckets = 1;
+		while( buckets * WAYS < capacity ) buckets <<= 1;
+		bucketmask = buckets - 1;
+		
+		keys = new long[ buckets * WAYS ];
+		energy = new long[ buckets * WAYS ];
+		used = new long[ buckets * WAYS ];
+		clear( );
+	}
+	
+	/**
+	 * Checks if the state has been seen before using at most the given energy.
+	 * If not, the state is (re)stored with the given energy.
+	 *
+	 * @param hash The hash of the burrow state
+	 * @param e The energy spent to reach the state
+	 * @return True if the state was already reached with the same or less
+	 *   energy, false if this is the cheapest way to reach it so far
+	 */
+	public boolean checkAndStore( final long hash, final long e ) {
+		final int bucket = bucketOf( hash ) * WAYS;
+		clock++;
+		
+		// find the entry in the bucket, meanwhile keeping track of the least
+		// recently used entry as eviction candidate
+		int evict = bucket;
+		for( int i = bucket; i < bucket + WAYS; i++ ) {
+			if( used[i] != 0 && keys[i] == hash ) {
+				used[i] = clock;
+				if( energy[i] <= e ) return true;
+				energy[i] = e;
+				return false;
+			}
+			
+			if( used[i] < used[evict] ) evict = i;
+		}
+		
+		// not found, store it in the empty or least recently used slot
+		if( used[evict] != 0 ) evictions++; else size++;
+		keys[evict] = hash;
+		energy[evict] = e;
+		used[evict] = clock;
+		return false;
+	}
+	
+	/**
+	 * Maps the hash onto a bucket index
+	 *
+	 * @param hash The state hash
+	 * @return The bucket index
+	 */
+	private int bucketOf( final long hash ) {
+		return (int)(hash ^ (hash >>> 32)) & bucketmask;
+	}
+	
+	/**
+	 * Clears all entries in the table
+	 */
+	public void clear( ) {
+		for( int i = 0; i < used.length; i++ ) used[i] = 0;
+		clock = 0;
+		size = 0;
+		evictions = 0;
+	}
+	
+	/** @return The maximum number of entries in the table */
+	public int capacity( ) { return keys.length; }
+	
+	/** @return The number of entries currently stored */
+	public int size( ) { return size; }
+	
+	/** @return The number of entries that have been evicted */
+	public long getEvictions( ) { return evictions; }
+	
+	/** @return The description of the table */
+	@Override
+	public String toString( ) {
+		return "[TT: " + size + "/" + capacity( ) + ", evicted: " + evictions + "]";
+	}
+}
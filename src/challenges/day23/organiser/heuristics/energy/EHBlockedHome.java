@@ -0,0 +1,19 @@
+package challenges.day23.organiser.heuristics.energy;
+
+/**
+ * Extends the room fill heuristic by also charging Apods that are in their
+ * own room, but sit above Apods of another family. Such an Apod has to leave
+ * the room to let the other ones out. Because it cannot stop in front of the
+ * door, it has to step aside at least one position and back again, which
+ * costs two horizontal steps on top of its exit and re-entry costs.
+ * 
+ * @author Joris
+ */
+public class EHBlockedHome extends EHRoomFill {
+	/**
+	 * Creates a new blocked home heuristic
+	 */
+	public EHBlockedHome( ) {
+		super( 2 );
+	}
+}
@@ -2,6 +2,7 @@ package challenges.day23.organiser.heuristics.energy;
 
 import challenges.day23.apods.Apod;
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 import challenges.day23.apods.BurrowRoom;
 
 /**
@@ -16,7 +17,8 @@ public class EHMinimalInvalid implements EnergyHeuristic {
 	public long estimateMinimalEnergy( Burrow burrow ) {
 		long energy = 0;
 	
-		for( final Apod a : burrow.getApods( ) ) {
+		for( int i = 0; i < burrow.getApodCount( ); i++ ) {
+			final Apod a = burrow.getApod( i );
 			// already home, no need to estimate costs
 			if( a.isHome( ) ) continue;
 			
@@ -29,4 +31,32 @@ public class EHMinimalInvalid implements EnergyHeuristic {
 		
 		return energy;
 	}
+	
+	@Override
+	public long estimateMinimalEnergy( final BurrowEncoding enc, final long[] state ) {
+		long energy = 0;
+		
+		// apods in the hallway need to move to their door and one step in
+		for( int x = 0; x < enc.hallsize; x++ ) {
+			final int v = enc.get( state, x );
+			if( v == 0 ) continue;
+			energy += (long)(Math.abs( enc.getDoor( v - 1 ) - x ) + 1) * enc.getEnergy( v - 1 );
+		}
+		
+		// apods in rooms that are not home need to get out and into their room
+		for( int r = 0; r < enc.rooms; r++ ) {
+			// the apods at the bottom that belong here are already home
+			int d = enc.roomsize - 1;
+			while( d >= 0 && enc.get( state, enc.getRoomCell( r, d ) ) == r + 1 ) d--;
+			
+			for( ; d >= 0; d-- ) {
+				final int v = enc.get( state, enc.getRoomCell( r, d ) );
+				if( v == 0 ) break;
+				final int dx = Math.abs( enc.getDoor( v - 1 ) - enc.getDoor( r ) );
+				energy += (long)(dx + d + 2) * enc.getEnergy( v - 1 );
+			}
+		}
+		
+		return energy;
+	}
 }
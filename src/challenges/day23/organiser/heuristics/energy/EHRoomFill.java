@@ -0,0 +1,92 @@
+package challenges.day23.organiser.heuristics.energy;
+
+import challenges.day23.apods.Apod;
+import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
+import challenges.day23.apods.BurrowRoom;
+
+/**
+ * Underestimates the minimal energy required by ignoring blocking, like
+ * EHMinimalInvalid, but accounts for the depth at which Apods enter their
+ * room. If k Apods still need to enter a room, they will fill its k topmost
+ * free slots, hence the vertical cost of entering is 1 + 2 + ... + k steps
+ * rather than one step per Apod.
+ * 
+ * @author Joris
+ */
+public class EHRoomFill implements EnergyHeuristic {
+	/** The horizontal steps charged to Apods that have to leave their own room */
+	private final int detour;
+	
+	/**
+	 * Creates a new room fill heuristic
+	 */
+	public EHRoomFill( ) {
+		this( 0 );
+	}
+	
+	/**
+	 * Creates a new room fill heuristic that charges a minimal detour for
+	 * Apods that are in their own room but have to leave it again
+	 * 
+	 * @param detour The number of horizontal steps to charge such Apods
+	 */
+	protected EHRoomFill( final int detour ) {
+		this.detour = detour;
+	}
+	
+	@Override
+	public long estimateMinimalEnergy( final Burrow burrow ) {
+		long energy = 0;
+		
+		// costs of getting out of the current position and to the room door
+		for( int i = 0; i < burrow.getApodCount( ); i++ ) {
+			final Apod a = burrow.getApod( i );
+			if( a.isHome( ) ) continue;
+			
+			final BurrowRoom r = burrow.getApodRoom( a );
+			final int dx = a.getRoom( ) == r ? detour : Math.abs( r.getDoorX( ) - a.getX( ) );
+			energy += a.getEnergyConsumption( dx, a.getY( ) );
+		}
+		
+		// costs of filling up the rooms from the door downwards
+		for( final BurrowRoom r : burrow.getRooms( ) ) {
+			final int k = burrow.roomsize - r.getHomeCount( );
+			energy += (long)r.getFamily( ).getEnergy( ) * k * (k + 1) / 2;
+		}
+		
+		return energy;
+	}
+	
+	@Override
+	public long estimateMinimalEnergy( final BurrowEncoding enc, final long[] state ) {
+		long energy = 0;
+		
+		// apods in the hallway need to move to their door
+		for( int x = 0; x < enc.hallsize; x++ ) {
+			final int v = enc.get( state, x );
+			if( v == 0 ) continue;
+			energy += (long)Math.abs( enc.getDoor( v - 1 ) - x ) * enc.getEnergy( v - 1 );
+		}
+		
+		for( int r = 0; r < enc.rooms; r++ ) {
+			// the apods at the bottom that belong here are already home
+			int d = enc.roomsize - 1;
+			while( d >= 0 && enc.get( state, enc.getRoomCell( r, d ) ) == r + 1 ) d--;
+			
+			// the others need to get out and to their door
+			for( int i = d; i >= 0; i-- ) {
+				final int v = enc.get( state, enc.getRoomCell( r, i ) );
+				if( v == 0 ) break;
+				final int dx = v == r + 1 ? detour : Math.abs( enc.getDoor( v - 1 ) - enc.getDoor( r ) );
+				energy += (long)(dx + i + 1) * enc.getEnergy( v - 1 );
+			}
+			
+			// and the room needs to be filled up from slot d upwards
+			final int k = d + 1;
+			energy += (long)enc.getEnergy( r ) * k * (k + 1) / 2;
+		}
+		
+		return energy;
+	}
+}
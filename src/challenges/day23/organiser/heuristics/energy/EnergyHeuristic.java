@@ -1,6 +1,7 @@
 package challenges.day23.organiser.heuristics.energy;
 
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 
 /**
  * Interface that allows implementation of various heuristics to determine the
@@ -20,4 +21,14 @@ public interface EnergyHeuristic {
 	 *   consumption.
 	 */
 	public long estimateMinimalEnergy( final Burrow burrow );
+	
+	/**
+	 * Estimates the minimal additional energy from a packed burrow state
+	 * 
+	 * @param encoding The encoding of the burrow layout
+	 * @param state The current packed state of the burrow
+	 * @return A heuristic value that never overestimates the additional energy
+	 *   consumption.
+	 */
+	public long estimateMinimalEnergy( final BurrowEncoding encoding, final long[] state );
 }
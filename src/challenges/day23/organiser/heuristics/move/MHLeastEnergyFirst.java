@@ -1,9 +1,11 @@
 package challenges.day23.organiser.heuristics.move;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 import challenges.day23.organiser.ApodMove;
 
 /**
@@ -13,13 +15,22 @@ import challenges.day23.organiser.ApodMove;
  */
 public class MHLeastEnergyFirst implements MoveHeuristic {
 	
+	/** The comparator, kept as constant to prevent allocating one per call */
+	private static final Comparator<ApodMove> COMPARATOR = new Comparator<ApodMove>( ) {
+		@Override
+		public int compare( ApodMove o1, ApodMove o2 ) {
+			return (int)o1.energy - (int)o2.energy;
+		}
+	};
+	
 	@Override
 	public void apply( final Burrow burrow, List<ApodMove> moves ) {
-		moves.sort( new Comparator<ApodMove>( ) {
-			@Override
-			public int compare( ApodMove o1, ApodMove o2 ) {
-				return (int)o1.energy - (int)o2.energy;
-			}			
-		} );
+		moves.sort( COMPARATOR );
+	}
+	
+	@Override
+	public void apply( final BurrowEncoding encoding, final long[] state, final long[] moves, final int count ) {
+		// moves are encoded with their energy in the most significant bits
+		Arrays.sort( moves, 0, count );
 	}
 }
@@ -1,9 +1,11 @@
 package challenges.day23.organiser.heuristics.move;
 
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 import challenges.day23.organiser.ApodMove;
 
 /**
@@ -13,13 +15,27 @@ import challenges.day23.organiser.ApodMove;
  */
 public class MHMostEnergyFirst implements MoveHeuristic {
 	
+	/** The comparator, kept as constant to prevent allocating one per call */
+	private static final Comparator<ApodMove> COMPARATOR = new Comparator<ApodMove>( ) {
+		@Override
+		public int compare( ApodMove o1, ApodMove o2 ) {
+			return (int)o2.energy - (int)o1.energy;
+		}
+	};
+	
 	@Override
 	public void apply( final Burrow burrow, final List<ApodMove> moves ) {
-		moves.sort( new Comparator<ApodMove>( ) {
-			@Override
-			public int compare( ApodMove o1, ApodMove o2 ) {
-				return (int)o2.energy - (int)o1.energy;
-			}			
-		} );
+		moves.sort( COMPARATOR );
+	}
+	
+	@Override
+	public void apply( final BurrowEncoding encoding, final long[] state, final long[] moves, final int count ) {
+		// moves are encoded with their energy in the most significant bits
+		Arrays.sort( moves, 0, count );
+		for( int i = 0; i < count / 2; i++ ) {
+			final long m = moves[i];
+			moves[i] = moves[count - 1 - i];
+			moves[count - 1 - i] = m;
+		}
 	}
 }
@@ -3,6 +3,7 @@ package challenges.day23.organiser.heuristics.move;
 import java.util.List;
 
 import challenges.day23.apods.Burrow;
+import challenges.day23.apods.BurrowEncoding;
 import challenges.day23.organiser.ApodMove;
 
 public interface MoveHeuristic {
@@ -15,5 +16,16 @@ public interface MoveHeuristic {
 	 * @param moves The set of available next moves
 	 */
 	public void apply( final Burrow burrow, final List<ApodMove> moves );
+	
+	/**
+	 * Orders the encoded moves in the buffer according to the implementation of
+	 * the heuristic, in place
+	 * 
+	 * @param encoding The encoding of the burrow layout
+	 * @param state The current packed state of the burrow
+	 * @param moves The buffer of encoded moves
+	 * @param count The number of moves in the buffer
+	 */
+	public void apply( final BurrowEncoding encoding, final long[] state, final long[] moves, final int count );
 
 }
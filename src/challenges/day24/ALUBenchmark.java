@@ -0,0 +1,106 @@
+package challenges.day24;
+
+import java.util.List;
+import java.util.Random;
+
+import aocutil.io.FileReader;
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.BatchALU;
+import challenges.day24.alu.mem.MemRegister;
+
+public class ALUBenchmark {
+	
+	/** The number of serials to run per measurement round */
+	private static final int SERIALS = 10000;
+	
+	/**
+	 * Measures the time per call of ALU.run on the NOMAD program of day 24,
+	 * in interpreted and compiled mode, both with and without the peephole
+	 * optimiser, and the time per serial of the batch ALU. A number of warm-up
+	 * rounds is run first so that the JIT has settled before measuring.
+	 *
+	 * Usage: ALUBenchmark [warmup rounds] [measured rounds] [seed]
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final int warmup = args.length > 0 ? Integer.parseInt( args[0] ) : 5;
+		final int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 10;
+		final long seed = args.length > 2 ? Long.parseLong( args[2] ) : 24;
+		final List<String> input = new FileReader( ALUBenchmark.class.getResource( "day24_input.txt" ) ).readLines( );
+		
+		// generate a fixed set of random serials, digits 1-9 only
+		final Random rand = new Random( seed );
+		final String[] serials = new String[ SERIALS ];
+		final long[] numbers = new long[ SERIALS ];
+		for( int i = 0; i < SERIALS; i++ ) {
+			final char[] digits = new char[ 14 ];
+			for( int d = 0; d < digits.length; d++ ) digits[d] = (char)('1' + rand.nextInt( 9 ));
+			serials[i] = new String( digits );
+			numbers[i] = Long.parseLong( serials[i] );
+		}
+		
+		System.out.println( String.format( "%-16s %8s %12s %12s %12s", "Mode", "Rounds", "Min ns/run", "Avg ns/run", "Checksum" ) );
+		String optimisation = "";
+		for( int mode = 0; mode < 4; mode++ ) {
+			final boolean compiled = (mode & 1) != 0;
+			final boolean optimised = (mode & 2) != 0;
+			final ALU alu = new ALU( );
+			alu.loadProgram( input );
+			if( optimised ) optimisation = alu.optimise( ).toString( );
+			if( compiled ) alu.compile( );
+			
+			for( int r = 0; r < warmup; r++ ) runAll( alu, serials );
+			
+			long min = Long.MAX_VALUE;
+			long total = 0;
+			long checksum = 0;
+			for( int r = 0; r < rounds; r++ ) {
+				final long start = System.nanoTime( );
+				checksum = runAll( alu, serials );
+				final long time = System.nanoTime( ) - start;
+				min = Math.min( min, time );
+				total += time;
+			}
+			final String name = (optimised ? "opt " : "") + (compiled ? "compiled" : "interpreted");
+			System.out.println( String.format( "%-16s %8d %12d %12d %12d", name, rounds, min / SERIALS, total / rounds / SERIALS, checksum ) );
+		}
+		
+		// batch execution of all serials at once
+		final BatchALU batch = new BatchALU( );
+		batch.loadProgram( input );
+		final long[] z = new long[ SERIALS ];
+		for( int r = 0; r < warmup; r++ ) batch.run( numbers, 0, SERIALS, z );
+		
+		long min = Long.MAX_VALUE;
+		long total = 0;
+		long checksum = 0;
+		for( int r = 0; r < rounds; r++ ) {
+			final long start = System.nanoTime( );
+			batch.run( numbers, 0, SERIALS, z );
+			final long time = System.nanoTime( ) - start;
+			min = Math.min( min, time );
+			total += time;
+		}
+		for( final long v : z ) checksum += v;
+		System.out.println( String.format( "%-16s %8d %12d %12d %12d", "batch", rounds, min / SERIALS, total / rounds / SERIALS, checksum ) );
+		System.out.println( );
+		System.out.println( optimisation );
+	}
+	
+	/**
+	 * Runs the ALU program on every serial
+	 * 
+	 * @param alu The ALU with the program loaded
+	 * @param serials The serials to feed to the program
+	 * @return The sum of all Z register values, so that the work cannot be
+	 *   optimised away and both modes can be compared
+	 */
+	private static long runAll( final ALU alu, final String[] serials ) {
+		long sum = 0;
+		for( final String s : serials )
+			sum += alu.run( s ).read( MemRegister.Z );
+		return sum;
+	}
+}
@@ -4,6 +4,7 @@ import java.util.List;
 
 import aocutil.io.FileReader;
 import challenges.day24.alu.ALU;
+import challenges.day24.alu.analysis.SerialFinder;
 import challenges.day24.alu.mem.MemRegister;
 
 public class Day24 {
@@ -24,10 +25,28 @@ public class Day24 {
 		System.out.println( "Tests: " );
 		test( ex_input, new String[] { "34", "7", "" } );
 		System.out.println(  );
-		System.out.println( "Answer : " + testSerial( input, "99893999291967" ) );
+		System.out.println( "Answer : " + testSerial( input, findSerial( input, true ) ) );
 
 		System.out.println( "\n---[ Part 2 ]---" );
-		System.out.println( "Answer : " + testSerial( input, "34171911181211" ) );
+		System.out.println( "Answer : " + testSerial( input, findSerial( input, false ) ) );
+	}
+	
+	/**
+	 * Finds the largest or smallest valid serial for the NOMAD program by a
+	 * digit-by-digit search, pruned by interval analysis of the program
+	 * 
+	 * @param input The ALU program to run the NOMAD model checker
+	 * @param largest True to find the largest serial, false for the smallest
+	 * @return The valid serial
+	 */
+	public static String findSerial( final List<String> input, final boolean largest ) {
+		final ALU alu = new ALU( );
+		alu.loadProgram( input );
+		
+		final SerialFinder finder = new SerialFinder( alu.getProgram( ) );
+		final String serial = largest ? finder.findLargest( ) : finder.findSmallest( );
+		if( serial == null ) throw new RuntimeException( "No valid serial exists" );
+		return serial;
 	}
 	
 	/**
@@ -60,9 +79,8 @@ public class Day24 {
 		final ALU alu = new ALU( );
 		alu.loadProgram( input );
 
-		// the serial was deducted by analysing the instructions, no programming
-		// was done to get it. Just test it here
-		// see day_24reveng files for the reverse engineering of the assembly
+		// the serial can be found using findSerial( ) or by reverse engineering
+		// the instructions, see day_24reveng files. Just test it here
 		final int result = (int)alu.run( serial ).read( MemRegister.Z );
 	
 		// only valid if the program returns 0
@@ -0,0 +1,94 @@
+package challenges.day24;
+
+import java.util.List;
+
+import aocutil.io.FileReader;
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.mem.MemRegister;
+import challenges.day24.solver.PrefixEnumerator;
+
+public class EnumerationBenchmark {
+	
+	/**
+	 * Enumerates all serials with a given prefix, once by running the full
+	 * program for every serial and once using the prefix tree enumerator that
+	 * restores ALU snapshots, and compares the time per serial
+	 *
+	 * Usage: EnumerationBenchmark [prefix] [compile]
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final List<String> input = new FileReader( EnumerationBenchmark.class.getResource( "day24_input.txt" ) ).readLines( );
+		final String prefix = args.length > 0 ? args[0] : "99893999";
+		final boolean compile = args.length > 1 ? Boolean.parseBoolean( args[1] ) : false;
+		
+		System.out.println( String.format( "%-12s %10s %10s %8s %12s %10s %20s", "Method", "Serials", "Blocks", "Valid", "Time", "ns/serial", "Checksum" ) );
+		for( int round = 0; round < 3; round++ ) {
+			// run the full program for every serial
+			final ALU alu = new ALU( );
+			alu.loadProgram( input );
+			if( compile ) alu.compile( );
+			final PrefixEnumerator enumerator = new PrefixEnumerator( input, compile );
+			final int digits = enumerator.getLength( ) - prefix.length( );
+			
+			long start = System.nanoTime( );
+			long count = 0;
+			long valid = 0;
+			long checksum = 0;
+			final char[] serial = (prefix + "1".repeat( digits )).toCharArray( );
+			while( true ) {
+				final long z = alu.run( new String( serial ) ).read( MemRegister.Z );
+				count++;
+				if( z == 0 ) valid++;
+				checksum += z;
+				if( !next( serial, prefix.length( ) ) ) break;
+			}
+			long time = System.nanoTime( ) - start;
+			print( "full run", count, count * enumerator.getLength( ), valid, time, checksum );
+			
+			// prefix tree enumeration
+			final long[] result = new long[ 2 ];
+			start = System.nanoTime( );
+			count = enumerator.enumerate( prefix, (s, z) -> {
+				if( z == 0 ) result[0]++;
+				result[1] += z;
+			} );
+			time = System.nanoTime( ) - start;
+			print( "prefix tree", count, enumerator.getBlockRuns( ), result[0], time, result[1] );
+		}
+	}
+	
+	/**
+	 * Prints a result line
+	 * 
+	 * @param method The enumeration method
+	 * @param count The number of serials
+	 * @param blocks The number of input blocks executed
+	 * @param valid The number of valid serials
+	 * @param time The time it took in nanoseconds
+	 * @param checksum The sum of all Z values
+	 */
+	private static void print( final String method, final long count, final long blocks, final long valid, final long time, final long checksum ) {
+		System.out.println( String.format( "%-12s %10d %10d %8d %10dms %10d %20d", method, count, blocks, valid, time / 1000000, time / count, checksum ) );
+	}
+	
+	/**
+	 * Moves to the next serial in ascending order with digits 1-9
+	 * 
+	 * @param serial The serial digits, modified in place
+	 * @param fixed The number of leading digits that are fixed
+	 * @return False if there is no next serial
+	 */
+	private static boolean next( final char[] serial, final int fixed ) {
+		for( int i = serial.length - 1; i >= fixed; i-- ) {
+			if( serial[i] < '9' ) {
+				serial[i]++;
+				return true;
+			}
+			serial[i] = '1';
+		}
+		return false;
+	}
+}
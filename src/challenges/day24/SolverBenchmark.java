@@ -0,0 +1,54 @@
+package challenges.day24;
+
+import java.util.List;
+
+import aocutil.io.FileReader;
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.analysis.SerialFinder;
+import challenges.day24.solver.MemoSolver;
+import challenges.day24.solver.StateMemo;
+
+public class SolverBenchmark {
+	
+	/**
+	 * Compares the ways to find the largest and smallest valid serial of the
+	 * NOMAD program: the interval analysis search and the memoised block
+	 * solver, interpreted and compiled, for a range of memo memory caps
+	 *
+	 * Usage: SolverBenchmark [memo cap in KB]...
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final List<String> input = new FileReader( SolverBenchmark.class.getResource( "day24_input.txt" ) ).readLines( );
+		final long[] caps = new long[ args.length > 0 ? args.length : 3 ];
+		for( int i = 0; i < caps.length; i++ ) caps[i] = args.length > 0 ? Long.parseLong( args[i] ) : new long[] { 1024, 16384, 131072 }[i];
+		
+		System.out.println( String.format( "%-10s %-22s %16s %10s %8s", "Search", "Solver", "Serial", "Blocks", "Time" ) );
+		for( final boolean largest : new boolean[] { true, false } ) {
+			final String search = largest ? "largest" : "smallest";
+			
+			// interval analysis
+			final ALU alu = new ALU( );
+			alu.loadProgram( input );
+			final SerialFinder finder = new SerialFinder( alu.getProgram( ) );
+			long start = System.currentTimeMillis( );
+			final String s = largest ? finder.findLargest( ) : finder.findSmallest( );
+			System.out.println( String.format( "%-10s %-22s %16s %10d %6dms", search, "interval", s, finder.getNodeCount( ), System.currentTimeMillis( ) - start ) );
+			
+			// memoised block search, the smallest serial takes minutes when
+			// interpreted so only run it compiled
+			for( final boolean compile : largest ? new boolean[] { false, true } : new boolean[] { true } ) {
+				for( final long cap : caps ) {
+					final MemoSolver solver = new MemoSolver( input, StateMemo.withMemoryCap( cap * 1024 ), compile );
+					start = System.currentTimeMillis( );
+					final String serial = largest ? solver.findLargest( ) : solver.findSmallest( );
+					final long time = System.currentTimeMillis( ) - start;
+					final String name = (compile ? "compiled" : "interpreted") + " " + cap + "KB";
+					System.out.println( String.format( "%-10s %-22s %16s %10d %6dms %s", search, name, serial, solver.getBlockRuns( ), time, solver.getMemo( ) ) );
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package challenges.day24;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import aocutil.io.FileReader;
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.mem.ALUMem;
+import challenges.day24.alu.mem.MemRegister;
+
+public class YieldBenchmark {
+	
+	/** The number of serials to run per measurement round */
+	private static final int SERIALS = 5000;
+	
+	/**
+	 * Measures the throughput of the interpreted ALU on yield-heavy versions of
+	 * the NOMAD program: without yields, with a yield before every input and
+	 * with a yield after every instruction. Every yield is continued directly.
+	 *
+	 * Usage: YieldBenchmark [warmup rounds] [measured rounds]
+	 *
+	 * @param args The command line arguments
+	 * @throws Exception
+	 */
+	public static void main( final String[] args ) throws Exception {
+		final int warmup = args.length > 0 ? Integer.parseInt( args[0] ) : 5;
+		final int rounds = args.length > 1 ? Integer.parseInt( args[1] ) : 10;
+		final List<String> input = new FileReader( YieldBenchmark.class.getResource( "day24_input.txt" ) ).readLines( );
+		
+		// generate a fixed set of random serials
+		final Random rand = new Random( 24 );
+		final String[] serials = new String[ SERIALS ];
+		for( int i = 0; i < SERIALS; i++ ) {
+			final char[] digits = new char[ 14 ];
+			for( int d = 0; d < digits.length; d++ ) digits[d] = (char)('1' + rand.nextInt( 9 ));
+			serials[i] = new String( digits );
+		}
+		
+		// create the yield-heavy programs
+		final List<String> perinput = new ArrayList<>( );
+		final List<String> perinstr = new ArrayList<>( );
+		for( final String s : input ) {
+			if( s.startsWith( "inp" ) ) perinput.add( "yield" );
+			perinput.add( s );
+			perinstr.add( s );
+			perinstr.add( "yield" );
+		}
+		
+		final String[] names = { "no yields", "yield per input", "yield per instr" };
+		final List<List<String>> programs = new ArrayList<>( );
+		programs.add( input );
+		programs.add( perinput );
+		programs.add( perinstr );
+		
+		System.out.println( String.format( "%-16s %10s %12s %12s %16s", "Program", "Yields", "ns/run", "ns/yield", "Checksum" ) );
+		for( int p = 0; p < programs.size( ); p++ ) {
+			final ALU alu = new ALU( );
+			alu.loadProgram( programs.get( p ) );
+			for( int r = 0; r < warmup; r++ ) runAll( alu, serials );
+			
+			long min = Long.MAX_VALUE;
+			long[] result = null;
+			for( int r = 0; r < rounds; r++ ) {
+				final long start = System.nanoTime( );
+				result = runAll( alu, serials );
+				min = Math.min( min, System.nanoTime( ) - start );
+			}
+			final long yields = result[1] / SERIALS;
+			System.out.println( String.format( "%-16s %10d %12d %12d %16d", names[p], yields, min / SERIALS, yields > 0 ? min / result[1] : 0, result[0] ) );
+		}
+	}
+	
+	/**
+	 * Runs the program on every serial, continuing after every yield
+	 * 
+	 * @param alu The ALU with the program loaded
+	 * @param serials The serials to run
+	 * @return The sum of all Z values and the total number of yields
+	 */
+	private static long[] runAll( final ALU alu, final String[] serials ) {
+		long sum = 0;
+		long yields = 0;
+		for( final String s : serials ) {
+			ALUMem mem = alu.run( s );
+			while( alu.isYielded( ) ) {
+				yields++;
+				mem = alu.cont( );
+			}
+			sum += mem.read( MemRegister.Z );
+		}
+		return new long[] { sum, yields };
+	}
+}
@@ -2,32 +2,53 @@ package challenges.day24.alu;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
-import challenges.day24.alu.instr.ALUYieldException;
+import challenges.day24.alu.compiler.ALUCompiler;
+import challenges.day24.alu.compiler.CompiledBlock;
+import challenges.day24.alu.instr.ExecutionStatus;
 import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.instr.YieldInstruction;
 import challenges.day24.alu.mem.ALUMem;
 import challenges.day24.alu.mem.MemRegister;
+import challenges.day24.alu.optimiser.PeepholeOptimiser;
 
 /**
  * The Arithmetic Logical Unit, or ALU, of the submarine that is able to
- * process a set of simple instructions
+ * process a set of simple instructions. Programs are interpreted by default,
+ * but can be compiled into JVM bytecode for faster execution.
  * 
  * @author Joris
  */
 public class ALU {
+	/** The memory registers, cached as values( ) returns a new array on every call */
+	private static final MemRegister[] REGISTERS = MemRegister.values( );
+	
 	/** The current program that is loaded in memory of the ALU */
 	private List<Instr> program;
 	
 	/** The memory registers of the running ALU */
 	protected ALUMem mem;
 	
+	/** The memory that snapshots are restored into, reused for every restore */
+	private ALUMem restored;
+	
 	/** The current instruction pointer */
 	private int ip;
 	
 	/** The current program yield state */
 	private boolean yielded;
 	
+	/** The compiled blocks of the program, null if it is interpreted */
+	private CompiledBlock[] compiled;
+	
+	/** The instruction pointers of the yield instructions that end the compiled blocks */
+	private int[] yieldips;
+	
+	/** The register values used by the compiled blocks */
+	private long[] registers;
+	
 	/**
 	 * Creates a new ALU
 	 */
@@ -35,6 +56,7 @@ public class ALU {
 		program = null;
 		ip = -1;
 		mem = null;
+		restored = null;
 		yielded = false;
 	}
 	
@@ -66,6 +88,74 @@ public class ALU {
 		return cont( );
 	}
 	
+	/**
+	 * Resumes the program after the yield instruction at the given position,
+	 * using the specified memory. This allows to continue a program from any
+	 * previously seen yield state, for instance to try different inputs from
+	 * the same state.
+	 * 
+	 * @param yieldip The instruction pointer of the yield instruction
+	 * @param memory The memory to continue the program with, including its
+	 *   remaining input
+	 * @return The contents of all memory registers upon termination or yield
+	 */
+	public ALUMem resume( final int yieldip, final ALUMem memory ) {
+		if( program == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		if( ip != -1 ) throw new RuntimeException( "Program is already running" );
+		if( !(program.get( yieldip ) instanceof YieldInstruction) ) throw new IllegalArgumentException( "Not a yield instruction: " + yieldip );
+		
+		mem = memory;
+		ip = yieldip;
+		yielded = true;
+		return cont( );
+	}
+	
+	/**
+	 * Saves the current execution state into a new snapshot
+	 * 
+	 * @return The snapshot
+	 */
+	public ALUSnapshot snapshot( ) {
+		return snapshot( new ALUSnapshot( ) );
+	}
+	
+	/**
+	 * Saves the current execution state into an existing snapshot, which
+	 * avoids allocation when states are saved often
+	 * 
+	 * @param into The snapshot to overwrite
+	 * @return The snapshot
+	 */
+	public ALUSnapshot snapshot( final ALUSnapshot into ) {
+		if( mem == null ) throw new RuntimeException( "Memory is not initialised" );
+		into.ip = ip;
+		into.yielded = yielded;
+		into.mem.copyFrom( mem );
+		return into;
+	}
+	
+	/**
+	 * Restores the execution state from a snapshot. If the snapshot was taken
+	 * during a yield, the program can be continued from that point using
+	 * cont( ), possibly after changing its memory.
+	 * 
+	 * The snapshot is copied into memory that the ALU reuses for every restore,
+	 * hence the memory returned by a run that continued from an earlier
+	 * restore is overwritten.
+	 * 
+	 * @param snapshot The snapshot to restore
+	 */
+	public void restore( final ALUSnapshot snapshot ) {
+		if( program == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		if( snapshot.ip >= program.size( ) ) throw new IllegalArgumentException( "The snapshot does not belong to the loaded program" );
+		
+		if( restored == null ) restored = new ALUMem( snapshot.mem );
+		else restored.copyFrom( snapshot.mem );
+		mem = restored;
+		ip = snapshot.ip;
+		yielded = snapshot.yielded;
+	}
+	
 	/**
 	 * Continues the execution after a yield instruction
 	 * 
@@ -74,19 +164,17 @@ public class ALU {
 	public ALUMem cont( ) {
 		if( !yielded ) throw new RuntimeException( "The program was not yielded" );
 		yielded = false;
+		
+		if( compiled != null ) return contCompiled( );
 
 		// run the program
 		while( ++ip < program.size( ) ) {
 			// get the next instruction to parse
 			final Instr in = program.get( ip );
 			
-			try {
-				
-				// execute the instruction within the current context, i.e. the values
-				// currently in the memory registers of the ALU
-				in.execute( this.mem );
-				
-			} catch( ALUYieldException e ) {
+			// execute the instruction within the current context, i.e. the values
+			// currently in the memory registers of the ALU
+			if( in.execute( this.mem ) == ExecutionStatus.Yield ) {
 				// yield instruction encountered, hence yield the execution
 				yielded = true;
 				return mem;
@@ -97,6 +185,32 @@ public class ALU {
 		return stop( );
 	}
 	
+	/**
+	 * Continues the execution using the compiled program, runs the block that
+	 * starts after the current instruction pointer
+	 * 
+	 * @return The contents of all memory registers upon termination or yield
+	 */
+	private ALUMem contCompiled( ) {
+		int block = 0;
+		while( block < yieldips.length && yieldips[ block ] <= ip ) block++;
+		
+		// the memory may have been changed during a yield, so pass the register
+		// values in and out of the block
+		for( int r = 0; r < REGISTERS.length; r++ ) registers[r] = mem.read( REGISTERS[r] );
+		compiled[ block ].execute( registers, mem );
+		for( int r = 0; r < REGISTERS.length; r++ ) mem.write( REGISTERS[r], registers[r] );
+		
+		// yield at the end of all but the last block
+		if( block < yieldips.length ) {
+			ip = yieldips[ block ];
+			yielded = true;
+			return mem;
+		}
+		
+		return stop( );
+	}
+	
 	/**
 	 * Stops the current program execution
 	 *
@@ -123,5 +237,67 @@ public class ALU {
 			prog.add( Instr.parse( s ) );
 		
 		this.program = prog;
+		this.compiled = null;
+	}
+	
+	/** @return The parsed instructions of the loaded program, read-only */
+	public List<Instr> getProgram( ) {
+		if( program == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		return Collections.unmodifiableList( program );
+	}
+	
+	/**
+	 * Optimises the loaded program using the peephole optimiser. The program
+	 * produces the exact same results, but typically with far less
+	 * instructions. Optimising discards a previously compiled program, so
+	 * it should be done before compiling.
+	 * 
+	 * @return The optimiser, which holds the statistics of the optimisation
+	 */
+	public PeepholeOptimiser optimise( ) {
+		if( program == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		if( ip != -1 ) throw new RuntimeException( "Program is already running" );
+		
+		final PeepholeOptimiser optimiser = new PeepholeOptimiser( );
+		program = optimiser.optimise( program );
+		compiled = null;
+		return optimiser;
+	}
+	
+	/**
+	 * Compiles the loaded program into JVM bytecode. All subsequent runs of the
+	 * program execute the compiled code instead of interpreting it, with the
+	 * exact same results.
+	 */
+	public void compile( ) {
+		if( program == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		if( ip != -1 ) throw new RuntimeException( "Program is already running" );
+		
+		// keep track of the yield positions, so the instruction pointer reflects
+		// the yield instruction the program stopped at
+		int yields = 0;
+		for( final Instr in : program ) if( in instanceof YieldInstruction ) yields++;
+		yieldips = new int[ yields ];
+		yields = 0;
+		for( int i = 0; i < program.size( ); i++ )
+			if( program.get( i ) instanceof YieldInstruction ) yieldips[ yields++ ] = i;
+		
+		registers = new long[ MemRegister.values( ).length ];
+		compiled = ALUCompiler.compile( program );
+	}
+	
+	/** @return True iff the program has yielded and can be continued */
+	public boolean isYielded( ) {
+		return yielded;
+	}
+	
+	/** @return True iff a program run has not been stopped, i.e. it has yielded or was interrupted by an exception */
+	public boolean isRunning( ) {
+		return ip != -1;
+	}
+	
+	/** @return True iff the loaded program has been compiled */
+	public boolean isCompiled( ) {
+		return compiled != null;
 	}
 }
@@ -0,0 +1,55 @@
+package challenges.day24.alu;
+
+import challenges.day24.alu.mem.ALUMem;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Snapshot of the execution state of an ALU, i.e. its instruction pointer,
+ * yield state, register values and input cursor. A snapshot can be restored
+ * into the ALU any number of times to continue execution from that point.
+ * 
+ * Snapshots can be reused, so that saving the state of the ALU does not
+ * require any allocation.
+ * 
+ * @author Joris
+ */
+public class ALUSnapshot {
+	/** The instruction pointer */
+	protected int ip;
+	
+	/** The yield state */
+	protected boolean yielded;
+	
+	/** The copy of the memory */
+	protected final ALUMem mem;
+	
+	/**
+	 * Creates a new, empty snapshot
+	 */
+	public ALUSnapshot( ) {
+		ip = -1;
+		yielded = false;
+		mem = new ALUMem( MemRegister.values( ) );
+	}
+	
+	/** @return The instruction pointer at the time of the snapshot */
+	public int getInstructionPointer( ) {
+		return ip;
+	}
+	
+	/** @return True iff the ALU had yielded at the time of the snapshot */
+	public boolean isYielded( ) {
+		return yielded;
+	}
+	
+	/** @return The memory at the time of the snapshot, read-only */
+	public ALUMem mem( ) {
+		return new ALUMem( mem );
+	}
+	
+	/** @return The description of the snapshot */
+	@Override
+	public String toString( ) {
+		return "[ip: " + ip + (yielded ? " (yielded)" : "") + ", mem: " + mem + ", input: " + mem.getInputCursor( ) + "]";
+	}
+}
@@ -0,0 +1,232 @@
+package challenges.day24.alu;
+
+import java.util.Collection;
+
+import challenges.day24.alu.instr.BinaryOpInstr;
+import challenges.day24.alu.instr.IArg;
+import challenges.day24.alu.instr.InputInstr;
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.instr.YieldInstruction;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * ALU that runs the same program over many inputs at once. Every register
+ * is held as an array of lanes, one lane per input, and each instruction is
+ * applied to all lanes in a tight loop before moving on to the next. This
+ * amortises the instruction dispatch over the whole batch and gives the JIT
+ * simple loops that it can unroll and vectorise.
+ * 
+ * Yield instructions have no meaning in batch execution and are skipped.
+ * 
+ * @author Joris
+ */
+public class BatchALU {
+	/** The number of inputs that is processed per pass over the program */
+	public static final int LANES = 1024;
+	
+	/** Operation codes of the translated program */
+	private static final int INP = 0, ADD = 1, MUL = 2, DIV = 3, MOD = 4, EQL = 5;
+	
+	/** The operation code per instruction */
+	private int[] ops;
+	
+	/** The destination register index per instruction */
+	private int[] dst;
+	
+	/** The source register index per instruction, -1 if it uses a literal */
+	private int[] src;
+	
+	/** The literal argument per instruction */
+	private long[] lit;
+	
+	/** The number of input instructions in the program */
+	private int inputs;
+	
+	/** The register lanes, indexed by register ordinal and then lane */
+	private final long[][] lanes;
+	
+	/** The input digit lanes, indexed by input number and then lane */
+	private int[][] in;
+	
+	/**
+	 * Creates a new batch ALU
+	 */
+	public BatchALU( ) {
+		lanes = new long[ MemRegister.values( ).length ][ LANES ];
+		ops = null;
+	}
+	
+	/**
+	 * Loads a program from a collection of Strings
+	 * 
+	 * @param input The program to load
+	 */
+	public void loadProgram( final Collection<String> input ) {
+		// count the instructions that are actually executed
+		int size = 0;
+		final Instr[] prog = new Instr[ input.size( ) ];
+		for( final String s : input ) {
+			final Instr i = Instr.parse( s );
+			if( !(i instanceof YieldInstruction) ) prog[ size++ ] = i;
+		}
+		
+		// translate them into flat arrays of operation codes and arguments
+		ops = new int[ size ];
+		dst = new int[ size ];
+		src = new int[ size ];
+		lit = new long[ size ];
+		inputs = 0;
+		for( int i = 0; i < size; i++ ) {
+			dst[i] = prog[i].getArgument( 0 ).getRegister( ).ordinal( );
+			src[i] = -1;
+			if( prog[i] instanceof InputInstr ) {
+				ops[i] = INP;
+				lit[i] = inputs++;
+				continue;
+			}
+			
+			ops[i] = getOperationCode( (BinaryOpInstr)prog[i] );
+			final IArg arg = prog[i].getArgument( 1 );
+			if( arg.isLiteral( ) ) lit[i] = arg.getLiteral( );
+			else src[i] = arg.getRegister( ).ordinal( );
+		}
+		
+		in = new int[ inputs ][ LANES ];
+	}
+	
+	/**
+	 * Determines the operation code of a binary instruction
+	 * 
+	 * @param instr The binary operation instruction
+	 * @return The operation code
+	 */
+	private static int getOperationCode( final BinaryOpInstr instr ) {
+		switch( instr.getOperator( ) ) {
+			case Add: return ADD;
+			case Multiply: return MUL;
+			case Divide: return DIV;
+			case Modulo: return MOD;
+			case Equals: return EQL;
+			
+			default:
+				throw new IllegalArgumentException( "Unsupported operation: " + instr.getOperator( ) );
+		}
+	}
+	
+	/** @return The number of input digits the loaded program reads */
+	public int getInputCount( ) {
+		return inputs;
+	}
+	
+	/**
+	 * Runs the program on every input. Each input is a string of digits that
+	 * is fed to the program from left to right, just as ALU.run does.
+	 * 
+	 * @param programinputs The inputs to run the program on
+	 * @return The value of the Z register upon termination, per input
+	 */
+	public long[] run( final String[] programinputs ) {
+		final long[] z = new long[ programinputs.length ];
+		for( int offset = 0; offset < programinputs.length; offset += LANES ) {
+			final int n = Math.min( LANES, programinputs.length - offset );
+			for( int l = 0; l < n; l++ ) {
+				final String s = programinputs[ offset + l ];
+				if( s.length( ) < inputs ) throw new RuntimeException( "No more input available" );
+				for( int i = 0; i < inputs; i++ ) in[i][l] = s.charAt( i ) - '0';
+			}
+			runLanes( n );
+			System.arraycopy( lanes[ MemRegister.Z.ordinal( ) ], 0, z, offset, n );
+		}
+		return z;
+	}
+	
+	/**
+	 * Runs the program on every serial. The digits of each serial are fed to
+	 * the program from most to least significant, padded with leading zeroes
+	 * to the number of inputs the program reads.
+	 * 
+	 * @param serials The serials to run the program on
+	 * @return The value of the Z register upon termination, per serial
+	 */
+	public long[] run( final long[] serials ) {
+		final long[] z = new long[ serials.length ];
+		run( serials, 0, serials.length, z );
+		return z;
+	}
+	
+	/**
+	 * Runs the program on a range of serials without allocating, so that it
+	 * can be called repeatedly to search large parts of the serial space
+	 * 
+	 * @param serials The serials to run the program on
+	 * @param from The index of the first serial to run
+	 * @param count The number of serials to run
+	 * @param z The array to store the value of the Z register in, per serial
+	 *   at the same index as the serial
+	 */
+	public void run( final long[] serials, final int from, final int count, final long[] z ) {
+		for( int offset = from; offset < from + count; offset += LANES ) {
+			final int n = Math.min( LANES, from + count - offset );
+			for( int l = 0; l < n; l++ ) {
+				long s = serials[ offset + l ];
+				for( int i = inputs - 1; i >= 0; i-- ) {
+					in[i][l] = (int)(s % 10);
+					s /= 10;
+				}
+			}
+			runLanes( n );
+			System.arraycopy( lanes[ MemRegister.Z.ordinal( ) ], 0, z, offset, n );
+		}
+	}
+	
+	/**
+	 * Runs the program on the first n lanes, using the input digits that have
+	 * been stored in the input lanes
+	 * 
+	 * @param n The number of lanes to run
+	 */
+	private void runLanes( final int n ) {
+		if( ops == null ) throw new RuntimeException( "No program loaded into ALU memory" );
+		
+		// reset all registers
+		for( final long[] r : lanes )
+			for( int l = 0; l < n; l++ ) r[l] = 0;
+		
+		for( int i = 0; i < ops.length; i++ ) {
+			final long[] d = lanes[ dst[i] ];
+			
+			// read the next input digit for every lane
+			if( ops[i] == INP ) {
+				final int[] digits = in[ (int)lit[i] ];
+				for( int l = 0; l < n; l++ ) d[l] = digits[l];
+				continue;
+			}
+			
+			// binary operation with a literal argument, skipping the ones that
+			// do not change the register such as div z 1
+			if( src[i] == -1 ) {
+				final long v = lit[i];
+				if( v == 1 && (ops[i] == MUL || ops[i] == DIV) ) continue;
+				if( v == 0 && ops[i] == ADD ) continue;
+				switch( ops[i] ) {
+					case ADD: for( int l = 0; l < n; l++ ) d[l] += v; break;
+					case MUL: for( int l = 0; l < n; l++ ) d[l] *= v; break;
+					case DIV: for( int l = 0; l < n; l++ ) d[l] /= v; break;
+					case MOD: for( int l = 0; l < n; l++ ) d[l] %= v; break;
+					case EQL: for( int l = 0; l < n; l++ ) d[l] = d[l] == v ? 1 : 0; break;
+				}
+				continue;
+			}
+			
+			// binary operation with a register argument
+			final long[] s = lanes[ src[i] ];
+			switch( ops[i] ) {
+				case ADD: for( int l = 0; l < n; l++ ) d[l] += s[l]; break;
+				case MUL: for( int l = 0; l < n; l++ ) d[l] *= s[l]; break;
+				case DIV: for( int l = 0; l < n; l++ ) d[l] /= s[l]; break;
+				case MOD: for( int l = 0; l < n; l++ ) d[l] %= s[l]; break;
+				case EQL: for( int l = 0; l < n; l++ ) d[l] = d[l] == s[l] ? 1 : 0; break;
+			}
+		}
+	}
+}
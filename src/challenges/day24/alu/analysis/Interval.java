@@ -0,0 +1,190 @@
+package challenges.day24.alu.analysis;
+
+/**
+ * Immutable closed range of values [min, max] that a register may hold. All
+ * operations return a range that contains every possible outcome of the
+ * operation on values from the operand ranges, hence the result of a
+ * sequence of operations is always a safe over-approximation.
+ * 
+ * Bounds that overflow are saturated to the full long range.
+ * 
+ * @author Joris
+ */
+public class Interval {
+	/** The range that contains all possible values */
+	public static final Interval ANY = new Interval( Long.MIN_VALUE, Long.MAX_VALUE );
+	
+	/** The lower bound, inclusive */
+	public final long min;
+	
+	/** The upper bound, inclusive */
+	public final long max;
+	
+	/**
+	 * Creates a new interval
+	 * 
+	 * @param min The lower bound, inclusive
+	 * @param max The upper bound, inclusive
+	 */
+	public Interval( final long min, final long max ) {
+		if( min > max ) throw new IllegalArgumentException( "Invalid interval [" + min + ", " + max + "]" );
+		this.min = min;
+		this.max = max;
+	}
+	
+	/**
+	 * Creates an interval of a single value
+	 * 
+	 * @param value The value
+	 * @return The interval [value, value]
+	 */
+	public static Interval of( final long value ) {
+		return new Interval( value, value );
+	}
+	
+	/** @return True iff the interval contains exactly one value */
+	public boolean isConstant( ) {
+		return min == max;
+	}
+	
+	/**
+	 * @param value The value to test
+	 * @return True iff the value lies within the interval
+	 */
+	public boolean contains( final long value ) {
+		return min <= value && value <= max;
+	}
+	
+	/**
+	 * @param other The other interval
+	 * @return True iff the intervals share at least one value
+	 */
+	public boolean overlaps( final Interval other ) {
+		return min <= other.max && other.min <= max;
+	}
+	
+	/**
+	 * @param other The other interval
+	 * @return The smallest interval that contains both intervals
+	 */
+	public Interval union( final Interval other ) {
+		return new Interval( Math.min( min, other.min ), Math.max( max, other.max ) );
+	}
+	
+	/**
+	 * @param other The interval to add
+	 * @return The range of the sum
+	 */
+	public Interval add( final Interval other ) {
+		try {
+			return new Interval( Math.addExact( min, other.min ), Math.addExact( max, other.max ) );
+		} catch( ArithmeticException e ) {
+			return ANY;
+		}
+	}
+	
+	/**
+	 * @param other The interval to multiply with
+	 * @return The range of the product
+	 */
+	public Interval mul( final Interval other ) {
+		try {
+			final long a = Math.multiplyExact( min, other.min );
+			final long b = Math.multiplyExact( min, other.max );
+			final long c = Math.multiplyExact( max, other.min );
+			final long d = Math.multiplyExact( max, other.max );
+			return new Interval( Math.min( Math.min( a, b ), Math.min( c, d ) ), Math.max( Math.max( a, b ), Math.max( c, d ) ) );
+		} catch( ArithmeticException e ) {
+			return ANY;
+		}
+	}
+	
+	/**
+	 * Determines the range of the truncated division. Divisors of zero are
+	 * left out as these make the program fail.
+	 * 
+	 * @param other The interval to divide by
+	 * @return The range of the quotient
+	 * @throws ArithmeticException if the divisor can only be zero
+	 */
+	public Interval div( final Interval other ) {
+		if( other.min == 0 && other.max == 0 ) throw new ArithmeticException( "/ by zero" );
+		
+		// split the divisor into its negative and positive part, division is
+		// monotone in both operands within each part
+		Interval res = null;
+		if( other.min < 0 ) res = divNonZero( new Interval( other.min, Math.min( other.max, -1 ) ) );
+		if( other.max > 0 ) {
+			final Interval pos = divNonZero( new Interval( Math.max( other.min, 1 ), other.max ) );
+			res = res == null ? pos : res.union( pos );
+		}
+		return res;
+	}
+	
+	/**
+	 * Division by an interval that does not contain zero
+	 * 
+	 * @param other The divisor
+	 * @return The range of the quotient
+	 */
+	private Interval divNonZero( final Interval other ) {
+		// dividing MIN_VALUE by -1 overflows
+		if( min == Long.MIN_VALUE && other.min == -1 ) return ANY;
+		
+		final long a = min / other.min;
+		final long b = min / other.max;
+		final long c = max / other.min;
+		final long d = max / other.max;
+		return new Interval( Math.min( Math.min( a, b ), Math.min( c, d ) ), Math.max( Math.max( a, b ), Math.max( c, d ) ) );
+	}
+	
+	/**
+	 * Determines the range of the remainder, which has the sign of the
+	 * dividend and is smaller in magnitude than the divisor
+	 * 
+	 * @param other The divisor
+	 * @return The range of the remainder
+	 * @throws ArithmeticException if the divisor can only be zero
+	 */
+	public Interval mod( final Interval other ) {
+		if( other.min == 0 && other.max == 0 ) throw new ArithmeticException( "/ by zero" );
+		
+		// a constant divisor over a non-negative range that does not wrap
+		// around gives the exact range
+		if( other.isConstant( ) && min >= 0 && other.min != Long.MIN_VALUE ) {
+			final long m = Math.abs( other.min );
+			if( max - min < m && min % m <= max % m ) return new Interval( min % m, max % m );
+		}
+		
+		// otherwise bound it by the largest divisor magnitude
+		final long m = Math.max( absMinusOne( other.min ), absMinusOne( other.max ) );
+		final long lo = min >= 0 ? 0 : Math.max( min, -m );
+		final long hi = max <= 0 ? 0 : Math.min( max, m );
+		return new Interval( lo, hi );
+	}
+	
+	/**
+	 * @param value The value
+	 * @return The largest remainder magnitude when dividing by the value
+	 */
+	private static long absMinusOne( final long value ) {
+		return value == Long.MIN_VALUE ? Long.MAX_VALUE : Math.max( Math.abs( value ) - 1, 0 );
+	}
+	
+	/**
+	 * @param other The interval to compare to
+	 * @return [1, 1] if both are the same constant, [0, 0] if they cannot be
+	 *   equal and [0, 1] otherwise
+	 */
+	public Interval eql( final Interval other ) {
+		if( !overlaps( other ) ) return of( 0 );
+		if( isConstant( ) && other.isConstant( ) ) return of( 1 );
+		return new Interval( 0, 1 );
+	}
+	
+	/** @return The string description of the interval */
+	@Override
+	public String toString( ) {
+		return isConstant( ) ? "[" + min + "]" : "[" + min + ", " + max + "]";
+	}
+}
@@ -0,0 +1,188 @@
+package challenges.day24.alu.analysis;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import challenges.day24.alu.instr.BinaryOpInstr;
+import challenges.day24.alu.instr.BinaryOperators;
+import challenges.day24.alu.instr.IArg;
+import challenges.day24.alu.instr.InputInstr;
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.instr.YieldInstruction;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Analysis pass over an ALU program that determines the range of values each
+ * register may hold, given the ranges of the register values at the start and
+ * the range of the input digits. Executing with constant ranges is exactly
+ * the same as running the program.
+ * 
+ * @author Joris
+ */
+public class IntervalAnalyser {
+	/** The instructions of the program, without yields */
+	private final List<Instr> program;
+	
+	/** The instruction index of every input instruction */
+	private final int[] inputs;
+	
+	/**
+	 * Creates a new analyser for the program
+	 * 
+	 * @param instructions The parsed program instructions
+	 */
+	public IntervalAnalyser( final List<Instr> instructions ) {
+		program = new ArrayList<>( instructions.size( ) );
+		for( final Instr in : instructions )
+			if( !(in instanceof YieldInstruction) ) program.add( in );
+		
+		int count = 0;
+		for( final Instr in : program ) if( in instanceof InputInstr ) count++;
+		inputs = new int[ count ];
+		count = 0;
+		for( int i = 0; i < program.size( ); i++ )
+			if( program.get( i ) instanceof InputInstr ) inputs[ count++ ] = i;
+	}
+	
+	/** @return The number of input digits the program reads */
+	public int getInputCount( ) {
+		return inputs.length;
+	}
+	
+	/** @return The number of analysed instructions */
+	public int size( ) {
+		return program.size( );
+	}
+	
+	/**
+	 * @param index The input number
+	 * @return The instruction index of the input instruction that reads it
+	 */
+	public int getInputPosition( final int index ) {
+		return inputs[ index ];
+	}
+	
+	/** @return The register ranges before the program runs, i.e. all zero */
+	public static Interval[] getInitialState( ) {
+		final Interval[] regs = new Interval[ MemRegister.values( ).length ];
+		for( int r = 0; r < regs.length; r++ ) regs[r] = Interval.of( 0 );
+		return regs;
+	}
+	
+	/**
+	 * Determines the register ranges after executing a part of the program
+	 * 
+	 * @param state The register ranges before the first instruction, indexed
+	 *   by register ordinal. This array is not modified
+	 * @param from The index of the first instruction to execute
+	 * @param to The index of the instruction to stop before
+	 * @param digits The range of every digit that is read from the input
+	 * @return The register ranges after the last instruction
+	 * @throws ArithmeticException if the program surely divides by zero
+	 */
+	public Interval[] execute( final Interval[] state, final int from, final int to, final Interval digits ) {
+		final Interval[] regs = state.clone( );
+		for( int i = from; i < to; i++ ) {
+			final Instr in = program.get( i );
+			regs[ in.getArgument( 0 ).getRegister( ).ordinal( ) ] = apply( in, regs, digits );
+		}
+		return regs;
+	}
+	
+	/**
+	 * Determines the range of the result of a single instruction
+	 * 
+	 * @param in The instruction
+	 * @param regs The current register ranges
+	 * @param digits The range of the input digits
+	 * @return The range of the value that the instruction writes
+	 * @throws ArithmeticException if the instruction surely divides by zero
+	 */
+	private static Interval apply( final Instr in, final Interval[] regs, final Interval digits ) {
+		if( in instanceof InputInstr ) return digits;
+		
+		final Interval r = regs[ in.getArgument( 0 ).getRegister( ).ordinal( ) ];
+		final IArg arg = in.getArgument( 1 );
+		final Interval v = arg.isLiteral( ) ? Interval.of( arg.getLiteral( ) ) : regs[ arg.getRegister( ).ordinal( ) ];
+		switch( ((BinaryOpInstr)in).getOperator( ) ) {
+			case Add: return r.add( v );
+			case Multiply: return r.mul( v );
+			case Divide: return r.div( v );
+			case Modulo: return r.mod( v );
+			case Equals: return r.eql( v );
+			
+			default:
+				throw new IllegalArgumentException( "Unsupported operation: " + ((BinaryOpInstr)in).getOperator( ) );
+		}
+	}
+	
+	/**
+	 * Determines the register ranges at the end of the program, given the
+	 * ranges at some instruction and the range of the remaining input digits
+	 * 
+	 * @param state The register ranges before the instruction
+	 * @param from The instruction index to start analysing from
+	 * @param digits The range of the remaining input digits
+	 * @return The register ranges after the program terminates
+	 * @throws ArithmeticException if the program surely divides by zero
+	 */
+	public Interval[] analyse( final Interval[] state, final int from, final Interval digits ) {
+		return execute( state, from, program.size( ), digits );
+	}
+	
+	/**
+	 * Checks whether a register may hold the given value at the end of the
+	 * program. This is more precise than analyse( ) as every comparison that
+	 * can go both ways is followed separately for both of its outcomes, so
+	 * that the ranges of the two paths are not merged into one wide range.
+	 * The paths are explored depth-first until one of them reaches the value.
+	 * 
+	 * @param state The register ranges before the instruction
+	 * @param from The instruction index to start analysing from
+	 * @param digits The range of the remaining input digits
+	 * @param reg The register to check
+	 * @param value The value it should be able to hold
+	 * @return False if the register can surely not hold the value at the end
+	 *   of the program, true if it may
+	 */
+	public boolean mayReach( final Interval[] state, final int from, final Interval digits, final MemRegister reg, final long value ) {
+		return mayReach( state.clone( ), from, digits, reg.ordinal( ), value );
+	}
+	
+	/**
+	 * Follows a single path through the program, splitting it on every
+	 * undecided comparison
+	 * 
+	 * @param regs The register ranges, modified during the analysis
+	 * @param from The instruction index to continue from
+	 * @param digits The range of the remaining input digits
+	 * @param reg The ordinal of the register to check
+	 * @param value The value it should be able to hold
+	 * @return True if the path or any of its splits may reach the value
+	 */
+	private boolean mayReach( final Interval[] regs, final int from, final Interval digits, final int reg, final long value ) {
+		for( int i = from; i < program.size( ); i++ ) {
+			final Instr in = program.get( i );
+			final int dst = in.getArgument( 0 ).getRegister( ).ordinal( );
+			final Interval res;
+			try {
+				res = apply( in, regs, digits );
+			} catch( ArithmeticException e ) {
+				// the program fails on this path
+				return false;
+			}
+			
+			// split the path on a comparison that may go both ways
+			if( !res.isConstant( ) && in instanceof BinaryOpInstr && ((BinaryOpInstr)in).getOperator( ) == BinaryOperators.Equals ) {
+				final Interval[] other = regs.clone( );
+				other[ dst ] = Interval.of( 1 );
+				regs[ dst ] = Interval.of( 0 );
+				return mayReach( regs, i + 1, digits, reg, value ) || mayReach( other, i + 1, digits, reg, value );
+			}
+			
+			regs[ dst ] = res;
+		}
+		
+		return regs[ reg ].contains( value );
+	}
+}
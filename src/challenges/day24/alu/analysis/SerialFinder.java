@@ -0,0 +1,123 @@
+package challenges.day24.alu.analysis;
+
+import java.util.List;
+
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Finds the largest or smallest valid model serial number for a NOMAD program
+ * by trying digits one at a time. After every digit, the interval analysis of
+ * the remainder of the program determines the range the Z register can end
+ * up in. If that range does not include 0, no serial with the current prefix
+ * can be valid and the prefix is pruned.
+ * 
+ * @author Joris
+ */
+public class SerialFinder {
+	/** The range of the digits in a model serial number */
+	private static final Interval DIGITS = new Interval( 1, 9 );
+	
+	/** The analyser of the program */
+	private final IntervalAnalyser analyser;
+	
+	/** The digits of the serial that is being constructed */
+	private final char[] serial;
+	
+	/** The number of serial prefixes that have been evaluated */
+	private long nodes;
+	
+	/** The number of prefixes that have been pruned */
+	private long pruned;
+	
+	/**
+	 * Creates a new serial finder
+	 * 
+	 * @param program The NOMAD program that validates the serial
+	 */
+	public SerialFinder( final List<Instr> program ) {
+		analyser = new IntervalAnalyser( program );
+		serial = new char[ analyser.getInputCount( ) ];
+	}
+	
+	/** @return The largest valid serial, or null if there is none */
+	public String findLargest( ) {
+		return find( false );
+	}
+	
+	/** @return The smallest valid serial, or null if there is none */
+	public String findSmallest( ) {
+		return find( true );
+	}
+	
+	/**
+	 * Searches the serials depth-first in ascending or descending order, the
+	 * first valid serial found is therefore the smallest or largest
+	 * 
+	 * @param ascending True to find the smallest valid serial
+	 * @return The first valid serial in the search order, null if none
+	 */
+	private String find( final boolean ascending ) {
+		nodes = 0;
+		pruned = 0;
+		if( serial.length == 0 ) return null;
+		
+		// execute everything up to the first input
+		final Interval[] start = analyser.execute( IntervalAnalyser.getInitialState( ), 0, analyser.getInputPosition( 0 ), DIGITS );
+		return search( 0, start, ascending ) ? new String( serial ) : null;
+	}
+	
+	/**
+	 * Tries every digit at the given position of the serial
+	 * 
+	 * @param index The index of the digit in the serial
+	 * @param state The register values right before reading the digit
+	 * @param ascending True to try digits in ascending order
+	 * @return True if a valid serial was found with the current prefix
+	 */
+	private boolean search( final int index, final Interval[] state, final boolean ascending ) {
+		final int from = analyser.getInputPosition( index );
+		final boolean last = index == serial.length - 1;
+		final int to = last ? analyser.size( ) : analyser.getInputPosition( index + 1 );
+		
+		for( int i = 0; i < 9; i++ ) {
+			final int digit = ascending ? 1 + i : 9 - i;
+			nodes++;
+			
+			// execute the program with the digit up to the next input
+			final Interval[] next;
+			try {
+				next = analyser.execute( state, from, to, Interval.of( digit ) );
+			} catch( ArithmeticException e ) {
+				// invalid operation, the program fails on this prefix
+				continue;
+			}
+			
+			serial[ index ] = (char)('0' + digit);
+			if( last ) {
+				if( next[ MemRegister.Z.ordinal( ) ].contains( 0 ) ) return true;
+				continue;
+			}
+			
+			// check if Z can still become 0 at the end of the program
+			if( !analyser.mayReach( next, to, DIGITS, MemRegister.Z, 0 ) ) {
+				pruned++;
+				continue;
+			}
+			
+			if( search( index + 1, next, ascending ) ) return true;
+		}
+		
+		return false;
+	}
+	
+	/** @return The number of serial prefixes evaluated in the last search */
+	public long getNodeCount( ) {
+		return nodes;
+	}
+	
+	/** @return The number of prefixes pruned in the last search */
+	public long getPrunedCount( ) {
+		return pruned;
+	}
+}
@@ -0,0 +1,166 @@
+package challenges.day24.alu.compiler;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.List;
+
+import challenges.day24.alu.instr.BinaryOpInstr;
+import challenges.day24.alu.instr.IArg;
+import challenges.day24.alu.instr.InputInstr;
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.instr.YieldInstruction;
+import challenges.day24.alu.mem.ALUMem;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Compiles ALU programs into JVM classes so that they run at native speed
+ * rather than being interpreted instruction by instruction. The program is
+ * split into blocks at every yield instruction and every block is compiled
+ * into its own hidden class that implements CompiledBlock. Within a block,
+ * all registers are kept in local variables.
+ * 
+ * The generated code has the exact same semantics as the interpreter:
+ * division and modulo truncate towards zero and throw on a zero divisor.
+ * 
+ * @author Joris
+ */
+public class ALUCompiler {
+	/** The internal name of the ALU memory class */
+	private static final String MEM = ALUMem.class.getName( ).replace( '.', '/' );
+	
+	/** The descriptor of the block's execute method */
+	private static final String EXECUTE = "([JL" + MEM + ";)V";
+	
+	/** The local variable slot of the first register, registers take two slots each */
+	private static final int REGBASE = 3;
+	
+	/** The binary name of the generated classes, the JVM makes hidden class names unique */
+	private static final String BLOCK = ALUCompiler.class.getPackage( ).getName( ) + ".Block";
+	
+	/**
+	 * Compiles the program into blocks
+	 * 
+	 * @param program The program to compile
+	 * @return The compiled blocks, one per yield instruction and one for the
+	 *   remainder of the program
+	 */
+	public static CompiledBlock[] compile( final List<Instr> program ) {
+		final List<CompiledBlock> blocks = new ArrayList<>( );
+		int start = 0;
+		for( int i = 0; i < program.size( ); i++ ) {
+			if( !(program.get( i ) instanceof YieldInstruction) ) continue;
+			blocks.add( compileBlock( program.subList( start, i ) ) );
+			start = i + 1;
+		}
+		blocks.add( compileBlock( program.subList( start, program.size( ) ) ) );
+		
+		return blocks.toArray( new CompiledBlock[ 0 ] );
+	}
+	
+	/**
+	 * Compiles a single block of instructions into a class and instantiates it.
+	 * The class is defined as hidden class in this package, which is not
+	 * reachable by name and is unloaded as soon as the block is no longer used.
+	 * 
+	 * @param instructions The instructions of the block, without yields
+	 * @return The compiled block
+	 */
+	private static CompiledBlock compileBlock( final List<Instr> instructions ) {
+		final ClassFileWriter cw = new ClassFileWriter( BLOCK.replace( '.', '/' ), "java/lang/Object", CompiledBlock.class.getName( ).replace( '.', '/' ) );
+		final ClassFileWriter.Code code = new ClassFileWriter.Code( );
+		final int nregs = MemRegister.values( ).length;
+		
+		// load all registers into locals
+		for( int r = 0; r < nregs; r++ ) {
+			code.op( 0x2b ); /* aload_1 */
+			iconst( code, r );
+			code.op( 0x2f ); /* laload */
+			code.op( 0x37 ); code.op( REGBASE + 2 * r ); /* lstore */
+		}
+		
+		for( final Instr in : instructions ) {
+			final int target = REGBASE + 2 * in.getArgument( 0 ).getRegister( ).ordinal( );
+			
+			if( in instanceof InputInstr ) {
+				// read the next digit from the memory
+				code.op( 0x2c ); /* aload_2 */
+				code.op( 0xb6 ); code.u2( cw.methodRef( MEM, "input", "()I" ) ); /* invokevirtual */
+				code.op( 0x85 ); /* i2l */
+				code.op( 0x37 ); code.op( target ); /* lstore */
+				continue;
+			}
+			
+			if( !(in instanceof BinaryOpInstr) ) throw new IllegalArgumentException( "Unsupported instruction: " + in );
+			
+			code.op( 0x16 ); code.op( target ); /* lload */
+			load( cw, code, in.getArgument( 1 ) );
+			switch( ((BinaryOpInstr)in).getOperator( ) ) {
+				case Add: code.op( 0x61 ); break; /* ladd */
+				case Multiply: code.op( 0x69 ); break; /* lmul */
+				case Divide: code.op( 0x6d ); break; /* ldiv */
+				case Modulo: code.op( 0x71 ); break; /* lrem */
+				case Equals:
+					// branch-free equality: (a ^ b) is zero iff they are equal, and
+					// ((x | -x) >>> 63) is 1 for any non-zero x
+					code.op( 0x83 ); /* lxor */
+					code.op( 0x5c ); /* dup2 */
+					code.op( 0x75 ); /* lneg */
+					code.op( 0x81 ); /* lor */
+					code.op( 0x10 ); code.op( 63 ); /* bipush */
+					code.op( 0x7d ); /* lushr */
+					code.op( 0x0a ); /* lconst_1 */
+					code.op( 0x83 ); /* lxor */
+					break;
+				default:
+					throw new IllegalArgumentException( "Unsupported operation: " + ((BinaryOpInstr)in).getOperator( ) );
+			}
+			code.op( 0x37 ); code.op( target ); /* lstore */
+		}
+		
+		// and write the registers back
+		for( int r = 0; r < nregs; r++ ) {
+			code.op( 0x2b ); /* aload_1 */
+			iconst( code, r );
+			code.op( 0x16 ); code.op( REGBASE + 2 * r ); /* lload */
+			code.op( 0x50 ); /* lastore */
+		}
+		code.op( 0xb1 ); /* return */
+		
+		cw.addMethod( "execute", EXECUTE, code, 4, REGBASE + 2 * nregs );
+		
+		try {
+			final Class<?> block = MethodHandles.lookup( ).defineHiddenClass( cw.toByteArray( ), true ).lookupClass( );
+			return (CompiledBlock)block.getDeclaredConstructor( ).newInstance( );
+		} catch( ReflectiveOperationException e ) {
+			throw new RuntimeException( "Failed to instantiate compiled block", e );
+		}
+	}
+	
+	/**
+	 * Pushes the value of the argument onto the operand stack
+	 * 
+	 * @param cw The class file writer, for constants
+	 * @param code The code to append to
+	 * @param arg The argument to load
+	 */
+	private static void load( final ClassFileWriter cw, final ClassFileWriter.Code code, final IArg arg ) {
+		if( !arg.isLiteral( ) ) {
+			code.op( 0x16 ); code.op( REGBASE + 2 * arg.getRegister( ).ordinal( ) ); /* lload */
+		} else if( arg.getLiteral( ) == 0 || arg.getLiteral( ) == 1 ) {
+			code.op( 0x09 + (int)arg.getLiteral( ) ); /* lconst_0 / lconst_1 */
+		} else {
+			code.op( 0x14 ); code.u2( cw.longConst( arg.getLiteral( ) ) ); /* ldc2_w */
+		}
+	}
+	
+	/**
+	 * Pushes a small integer constant onto the operand stack
+	 * 
+	 * @param code The code to append to
+	 * @param value The value, 0 to 5
+	 */
+	private static void iconst( final ClassFileWriter.Code code, final int value ) {
+		if( value < 0 || value > 5 ) throw new IllegalArgumentException( "Invalid constant: " + value );
+		code.op( 0x03 + value ); /* iconst_<n> */
+	}
+}
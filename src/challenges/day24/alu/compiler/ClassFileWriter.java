@@ -0,0 +1,281 @@
+package challenges.day24.alu.compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer for JVM class files. Supports exactly what the ALU compiler
+ * needs: a public final class with a default constructor and methods with
+ * straight-line code, i.e. without branches so that no stack map frames are
+ * required.
+ * 
+ * @author Joris
+ */
+public class ClassFileWriter {
+	/** The class file version (Java 8) */
+	private static final int VERSION = 52;
+	
+	/** Access flags */
+	private static final int ACC_PUBLIC = 0x0001;
+	private static final int ACC_FINAL = 0x0010;
+	private static final int ACC_SUPER = 0x0020;
+	
+	/** Constant pool tags */
+	private static final int CONSTANT_Utf8 = 1;
+	private static final int CONSTANT_Long = 5;
+	private static final int CONSTANT_Class = 7;
+	private static final int CONSTANT_Methodref = 10;
+	private static final int CONSTANT_NameAndType = 12;
+	
+	/** The internal name of the class */
+	private final String classname;
+	
+	/** The internal name of the super class */
+	private final String superclass;
+	
+	/** The internal names of the implemented interfaces */
+	private final String[] interfaces;
+	
+	/** The serialised constant pool entries */
+	private final ByteArrayOutputStream pool;
+	
+	/** The constant pool index per entry, to reuse entries */
+	private final Map<String, Integer> poolindex;
+	
+	/** The next free constant pool index */
+	private int poolsize;
+	
+	/** The serialised methods */
+	private final List<byte[]> methods;
+	
+	/**
+	 * Creates a new class file writer
+	 * 
+	 * @param classname The internal name of the class, e.g. a/b/C
+	 * @param superclass The internal name of its super class
+	 * @param interfaces The internal names of the interfaces it implements
+	 */
+	public ClassFileWriter( final String classname, final String superclass, final String... interfaces ) {
+		this.classname = classname;
+		this.superclass = superclass;
+		this.interfaces = interfaces;
+		this.pool = new ByteArrayOutputStream( );
+		this.poolindex = new HashMap<>( );
+		this.poolsize = 1;
+		this.methods = new ArrayList<>( );
+		
+		// add the default constructor that calls the super constructor
+		final Code init = new Code( );
+		init.op( 0x2a ); /* aload_0 */
+		init.op( 0xb7 ); init.u2( methodRef( superclass, "<init>", "()V" ) ); /* invokespecial */
+		init.op( 0xb1 ); /* return */
+		addMethod( "<init>", "()V", init, 1, 1 );
+	}
+	
+	/**
+	 * Adds a public method
+	 * 
+	 * @param name The method name
+	 * @param descriptor The method descriptor
+	 * @param code The method's bytecode
+	 * @param maxstack The maximal operand stack size
+	 * @param maxlocals The number of local variable slots, including the
+	 *   arguments and this
+	 */
+	public void addMethod( final String name, final String descriptor, final Code code, final int maxstack, final int maxlocals ) {
+		final byte[] bytecode = code.toByteArray( );
+		if( bytecode.length > 65535 ) throw new IllegalArgumentException( "The method " + name + " is too large: " + bytecode.length + " bytes" );
+		
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+		try( final DataOutputStream out = new DataOutputStream( bytes ) ) {
+			out.writeShort( ACC_PUBLIC );
+			out.writeShort( utf8( name ) );
+			out.writeShort( utf8( descriptor ) );
+			
+			// a single Code attribute without exception table and attributes
+			out.writeShort( 1 );
+			out.writeShort( utf8( "Code" ) );
+			out.writeInt( 2 + 2 + 4 + bytecode.length + 2 + 2 );
+			out.writeShort( maxstack );
+			out.writeShort( maxlocals );
+			out.writeInt( bytecode.length );
+			out.write( bytecode );
+			out.writeShort( 0 );
+			out.writeShort( 0 );
+		} catch( IOException e ) {
+			throw new RuntimeException( e );
+		}
+		methods.add( bytes.toByteArray( ) );
+	}
+	
+	/**
+	 * @param value The string value
+	 * @return The constant pool index of the UTF8 entry
+	 */
+	public int utf8( final String value ) {
+		final Integer idx = poolindex.get( "U" + value );
+		if( idx != null ) return idx;
+		
+		try {
+			final DataOutputStream out = new DataOutputStream( pool );
+			out.writeByte( CONSTANT_Utf8 );
+			out.writeUTF( value );
+		} catch( IOException e ) {
+			throw new RuntimeException( e );
+		}
+		return register( "U" + value, 1 );
+	}
+	
+	/**
+	 * @param name The internal name of the class
+	 * @return The constant pool index of the class entry
+	 */
+	public int classRef( final String name ) {
+		final Integer idx = poolindex.get( "C" + name );
+		if( idx != null ) return idx;
+		
+		final int nameidx = utf8( name );
+		pool.write( CONSTANT_Class );
+		writeShort( nameidx );
+		return register( "C" + name, 1 );
+	}
+	
+	/**
+	 * @param owner The internal name of the class that declares the method
+	 * @param name The method name
+	 * @param descriptor The method descriptor
+	 * @return The constant pool index of the method reference
+	 */
+	public int methodRef( final String owner, final String name, final String descriptor ) {
+		final String key = "M" + owner + "." + name + descriptor;
+		final Integer idx = poolindex.get( key );
+		if( idx != null ) return idx;
+		
+		final int cls = classRef( owner );
+		final int n = utf8( name );
+		final int d = utf8( descriptor );
+		pool.write( CONSTANT_NameAndType );
+		writeShort( n );
+		writeShort( d );
+		final int nt = register( "N" + name + descriptor, 1 );
+		
+		pool.write( CONSTANT_Methodref );
+		writeShort( cls );
+		writeShort( nt );
+		return register( key, 1 );
+	}
+	
+	/**
+	 * @param value The long value
+	 * @return The constant pool index of the long constant
+	 */
+	public int longConst( final long value ) {
+		final Integer idx = poolindex.get( "J" + value );
+		if( idx != null ) return idx;
+		
+		pool.write( CONSTANT_Long );
+		writeShort( (int)(value >>> 48) );
+		writeShort( (int)(value >>> 32) );
+		writeShort( (int)(value >>> 16) );
+		writeShort( (int)value );
+		
+		// long constants take up two entries in the pool
+		return register( "J" + value, 2 );
+	}
+	
+	/**
+	 * Registers the constant pool entry that has just been written
+	 * 
+	 * @param key The key of the entry
+	 * @param slots The number of pool slots it takes
+	 * @return The index of the entry
+	 */
+	private int register( final String key, final int slots ) {
+		final int idx = poolsize;
+		poolsize += slots;
+		if( poolsize > 65535 ) throw new IllegalStateException( "The constant pool is full" );
+		poolindex.put( key, idx );
+		return idx;
+	}
+	
+	/**
+	 * Writes an unsigned short into the constant pool
+	 * 
+	 * @param value The value to write
+	 */
+	private void writeShort( final int value ) {
+		pool.write( (value >>> 8) & 0xFF );
+		pool.write( value & 0xFF );
+	}
+	
+	/**
+	 * Generates the class file
+	 * 
+	 * @return The bytes of the class file
+	 */
+	public byte[] toByteArray( ) {
+		// make sure all class references are in the pool before writing it
+		final int thisidx = classRef( classname );
+		final int superidx = classRef( superclass );
+		final int[] ifaceidx = new int[ interfaces.length ];
+		for( int i = 0; i < interfaces.length; i++ ) ifaceidx[i] = classRef( interfaces[i] );
+		
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+		try( final DataOutputStream out = new DataOutputStream( bytes ) ) {
+			out.writeInt( 0xCAFEBABE );
+			out.writeShort( 0 );
+			out.writeShort( VERSION );
+			out.writeShort( poolsize );
+			pool.writeTo( out );
+			out.writeShort( ACC_PUBLIC | ACC_FINAL | ACC_SUPER );
+			out.writeShort( thisidx );
+			out.writeShort( superidx );
+			out.writeShort( ifaceidx.length );
+			for( final int i : ifaceidx ) out.writeShort( i );
+			out.writeShort( 0 ); /* fields */
+			out.writeShort( methods.size( ) );
+			for( final byte[] m : methods ) out.write( m );
+			out.writeShort( 0 ); /* attributes */
+		} catch( IOException e ) {
+			throw new RuntimeException( e );
+		}
+		return bytes.toByteArray( );
+	}
+	
+	/**
+	 * Buffer for the bytecode of a single method
+	 */
+	public static class Code {
+		/** The bytecode */
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream( );
+		
+		/**
+		 * Writes an opcode or unsigned byte operand
+		 * 
+		 * @param op The byte to write
+		 */
+		public void op( final int op ) {
+			bytes.write( op );
+		}
+		
+		/**
+		 * Writes an unsigned short operand
+		 * 
+		 * @param value The value to write
+		 */
+		public void u2( final int value ) {
+			bytes.write( (value >>> 8) & 0xFF );
+			bytes.write( value & 0xFF );
+		}
+		
+		/** @return The bytecode */
+		public byte[] toByteArray( ) {
+			return bytes.toByteArray( );
+		}
+	}
+}
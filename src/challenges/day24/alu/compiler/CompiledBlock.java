@@ -0,0 +1,21 @@
+package challenges.day24.alu.compiler;
+
+import challenges.day24.alu.mem.ALUMem;
+
+/**
+ * A block of ALU instructions that has been compiled into JVM bytecode. A
+ * block contains all instructions up to and including the next yield
+ * instruction, or up to the end of the program.
+ * 
+ * @author Joris
+ */
+public interface CompiledBlock {
+	/**
+	 * Executes the compiled instructions
+	 * 
+	 * @param registers The register values, indexed by register ordinal. The
+	 *   values are read at the start of the block and written back at its end
+	 * @param mem The ALU memory that provides the program input
+	 */
+	void execute( long[] registers, ALUMem mem );
+}
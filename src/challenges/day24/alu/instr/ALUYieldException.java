@@ -1,11 +0,0 @@
-package challenges.day24.alu.instr;
-
-/**
- * Exception to yield execution flow
- * 
- * @author Joris
- */
-@SuppressWarnings( "serial" )
-public class ALUYieldException extends Exception {
-
-}
@@ -21,6 +21,11 @@ public class BinaryOpInstr extends Instr {
 		this.op = op;
 	}
 	
+	/** @return The binary operation performed by this instruction */
+	public BinaryOperators getOperator( ) {
+		return op;
+	}
+	
 	/**
 	 * Executes the operation
 	 * 
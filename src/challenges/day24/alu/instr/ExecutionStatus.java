@@ -0,0 +1,14 @@
+package challenges.day24.alu.instr;
+
+/**
+ * The status of the execution flow after executing an instruction
+ * 
+ * @author Joris
+ */
+public enum ExecutionStatus {
+	/** Continue with the next instruction */
+	Continue,
+	
+	/** Yield the execution flow to the process that invoked the ALU */
+	Yield;
+}
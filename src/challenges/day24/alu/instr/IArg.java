@@ -44,6 +44,12 @@ public class IArg {
 		return this.register;
 	}
 	
+	/** @return The literal value of this argument */
+	public long getLiteral( ) {
+		if( !isLiteral( ) ) throw new RuntimeException( "Tried to get literal value of register argument" );
+		return this.value;
+	}
+	
 	/**
 	 * @param mem The memory to read 
 	 * @return The value of the literal or the value of the register in the memory
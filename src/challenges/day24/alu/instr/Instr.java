@@ -27,17 +27,32 @@ public abstract class Instr {
 	}
 	
 	
+	/**
+	 * @param index The argument index
+	 * @return The argument at the index
+	 */
+	public IArg getArgument( final int index ) {
+		return arguments[ index ];
+	}
+	
+	/** @return The number of arguments of the instruction */
+	public int getArgumentCount( ) {
+		return arguments.length;
+	}
+	
 	/**
 	 * Executes the instruction and writes the result into the memory register
 	 * specified by the first argument
 	 * 
 	 * @param alumem The current memory context of the ALU unit 
-	 * @throws ALUYieldException if the execution must yield
+	 * @return The status of the execution flow, Yield if the execution must
+	 *   yield after this instruction
 	 */
-	public void execute( final ALUMem alumem ) throws ALUYieldException {
+	public ExecutionStatus execute( final ALUMem alumem ) {
 		this.mem = alumem;
 		alumem.write( arguments[0].getRegister( ), executeInstruction( ) );
 		this.mem = null;
+		return ExecutionStatus.Continue;
 	}
 	
 	/**
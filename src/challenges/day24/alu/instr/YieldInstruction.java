@@ -3,7 +3,7 @@ package challenges.day24.alu.instr;
 import challenges.day24.alu.mem.ALUMem;
 
 /**
- * Simple instruction that throws an exception to halt the execution flow
+ * Simple instruction that signals the ALU to halt the execution flow
  * immediately, after which the ALU unit transfers control to the process that
  * invoked the unit. After a yield, the program execution can be resumed by 
  * running <code>Alu.cont( )</code>.
@@ -22,14 +22,14 @@ public class YieldInstruction extends Instr {
 	}
 	
 	/**
-	 * Overrides default execution behaviour, it only has to throw an exception
+	 * Overrides default execution behaviour, it only has to signal the yield
 	 * instead of performing some computation
 	 * 
-	 * @throws ALUYieldException to yield execution
+	 * @return Yield, always
 	 */
 	@Override
-	public void execute( final ALUMem alumem ) throws ALUYieldException {
-		throw new ALUYieldException( );
+	public ExecutionStatus execute( final ALUMem alumem ) {
+		return ExecutionStatus.Yield;
 	}
 	
 	/**
@@ -1,20 +1,22 @@
 package challenges.day24.alu.mem;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Stack;
-
 /**
  * Register-based memory for the ALU unit
  * 
  * @author Joris
  */
 public class ALUMem {
-	/** The map of active registers and their current values */
-	private final Map<MemRegister, Long> registers;
+	/** The current register values, indexed by register ordinal */
+	private final long[] registers;
+	
+	/** The bit mask of registers that are available, by ordinal */
+	private final int available;
+	
+	/** The program input as an array of digits */
+	private int[] in;
 	
-	/** The program input as a FIFO stack of digits */
-	private Stack<Integer> in;
+	/** The index of the next input digit to read */
+	private int cursor;
 	
 	/**
 	 * Creates a new Memory Register unit for the ALU
@@ -23,11 +25,41 @@ public class ALUMem {
 	 */
 	public ALUMem( final MemRegister... registers ) {
 		// initialise the registers to 0, marking them as available
-		this.registers = new HashMap<>( registers.length );
+		this.registers = new long[ MemRegister.values( ).length ];
+		int mask = 0;
 		for( final MemRegister r : registers )
-			this.registers.put( r, (long)0 );
+			mask |= 1 << r.ordinal( );
+		this.available = mask;
+		this.in = new int[ 0 ];
+		this.cursor = 0;
 	}
 
+	/**
+	 * Creates a copy of the memory
+	 * 
+	 * @param other The memory to copy
+	 */
+	public ALUMem( final ALUMem other ) {
+		this.registers = other.registers.clone( );
+		this.available = other.available;
+		this.in = other.in;
+		this.cursor = other.cursor;
+	}
+	
+	/**
+	 * Overwrites this memory with the contents of the other memory, i.e. its
+	 * register values and remaining input. The input digits themselves are
+	 * never modified and are therefore shared rather than copied.
+	 * 
+	 * @param other The memory to copy
+	 */
+	public void copyFrom( final ALUMem other ) {
+		if( other.available != available ) throw new IllegalArgumentException( "The memories have different registers" );
+		System.arraycopy( other.registers, 0, registers, 0, registers.length );
+		in = other.in;
+		cursor = other.cursor;
+	}
+	
 	/**
 	 * Retrieves the value currently stored in the register
 	 * 
@@ -35,8 +67,9 @@ public class ALUMem {
 	 * @return The value currently in the specified register
 	 */
 	public long read( final MemRegister reg ) {
-		if( !registers.containsKey( reg ) ) throw new IllegalArgumentException( "No such register: "+ reg );
-		return registers.get( reg );
+		final int idx = reg.ordinal( );
+		if( ((available >>> idx) & 1) == 0 ) throw new IllegalArgumentException( "No such register: "+ reg );
+		return registers[ idx ];
 	}
 	
 	/**
@@ -46,8 +79,9 @@ public class ALUMem {
 	 * @param value The value to store in the register
 	 */
 	public void write( final MemRegister reg, final long value ) {
-		if( !registers.containsKey( reg ) ) throw new IllegalArgumentException( "No such register: "+ reg );
-		registers.put( reg, value );
+		final int idx = reg.ordinal( );
+		if( ((available >>> idx) & 1) == 0 ) throw new IllegalArgumentException( "No such register: "+ reg );
+		registers[ idx ] = value;
 	}
 	
 	/**
@@ -57,24 +91,45 @@ public class ALUMem {
 	 */
 	public void setInput( final String input ) {
 		// map characters 0-9 to their actual numerical value
-		// perform this in reverse so the stack acts FIFO
-		final Stack<Integer> stack = new Stack<>( );
-		for( int i = input.length( ) - 1; i >= 0; i-- )
-			stack.add( input.charAt( i ) - '0' );
-		in = stack;
+		final int[] digits = new int[ input.length( ) ];
+		for( int i = 0; i < digits.length; i++ )
+			digits[i] = input.charAt( i ) - '0';
+		in = digits;
+		cursor = 0;
+	}
+	
+	/**
+	 * Stores the program input in memory without copying it, the digits are
+	 * shared and therefore must not be modified afterwards
+	 * 
+	 * @param digits The program input as numerical digit values
+	 */
+	public void setInput( final int[] digits ) {
+		in = digits;
+		cursor = 0;
+	}
+	
+	/** @return The index of the next input digit that will be read */
+	public int getInputCursor( ) {
+		return cursor;
 	}
 	
 	/**
 	 * @return The next input element
 	 */
 	public int input( ) {
-		if( in.isEmpty( ) ) throw new RuntimeException( "No more input available" );
-		return in.pop( );
+		if( cursor >= in.length ) throw new RuntimeException( "No more input available" );
+		return in[ cursor++ ];
 	}
 	
 	/** @return A dump of the current memory */
 	@Override
 	public String toString( ) {
-		return registers.toString( );
+		String res = "";
+		for( final MemRegister r : MemRegister.values( ) ) {
+			if( ((available >>> r.ordinal( )) & 1) == 0 ) continue;
+			res += (res.isEmpty( ) ? "" : ", ") + r + "=" + registers[ r.ordinal( ) ];
+		}
+		return "{" + res + "}";
 	}
 }
@@ -0,0 +1,314 @@
+package challenges.day24.alu.optimiser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import challenges.day24.alu.analysis.Interval;
+import challenges.day24.alu.instr.BinaryOpInstr;
+import challenges.day24.alu.instr.BinaryOperators;
+import challenges.day24.alu.instr.IArg;
+import challenges.day24.alu.instr.InputInstr;
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.instr.YieldInstruction;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Optimiser that rewrites a parsed ALU program into an equivalent program
+ * with fewer instructions. It repeats two passes until the program no longer
+ * shrinks:
+ * 
+ * - A forward pass that tracks the range of every register, starting from
+ *   all zeroes, and uses it for constant propagation, constant folding and
+ *   algebraic simplification, e.g. removing div z 1 or mul y x when x is 1.
+ * - A backward pass that removes stores to registers that are overwritten
+ *   before they are read.
+ * 
+ * The optimised program leaves the exact same register values at every
+ * yield and at the end of the program, for any input of digits 0-9. Yields
+ * are treated as points where the memory is observed and may be changed.
+ * Divisions that may fail are never removed.
+ * 
+ * @author Joris
+ */
+public class PeepholeOptimiser {
+	/** The range of an input digit */
+	private static final Interval DIGITS = new Interval( 0, 9 );
+	
+	/** The number of instructions before optimisation */
+	private int before;
+	
+	/** The number of instructions after optimisation */
+	private int after;
+	
+	/** The net number of instructions removed by constant folding */
+	private int folded;
+	
+	/** The number of instructions removed by algebraic simplification */
+	private int simplified;
+	
+	/** The number of dead stores removed */
+	private int deadstores;
+	
+	/**
+	 * Optimises the program
+	 * 
+	 * @param program The parsed program
+	 * @return The optimised program
+	 */
+	public List<Instr> optimise( final List<Instr> program ) {
+		before = program.size( );
+		folded = 0;
+		simplified = 0;
+		deadstores = 0;
+		
+		List<Instr> prog = program;
+		int size;
+		do {
+			size = prog.size( );
+			prog = removeDeadStores( fold( prog ) );
+		} while( prog.size( ) < size );
+		
+		after = prog.size( );
+		return prog;
+	}
+	
+	/**
+	 * Forward pass that propagates and folds constants and removes
+	 * instructions that do not change the register value. An instruction
+	 * with a constant result is not emitted at all, instead the constant is
+	 * only written to the register when an instruction reads the register
+	 * as its first argument, at a yield or at the end of the program.
+	 * 
+	 * @param program The program
+	 * @return The rewritten program
+	 */
+	private List<Instr> fold( final List<Instr> program ) {
+		final List<Instr> prog = new ArrayList<>( program.size( ) );
+		
+		// the range of each register in the original program and of the value
+		// actually in memory, which differ as long as a constant is pending
+		final Interval[] regs = new Interval[ MemRegister.values( ).length ];
+		final Interval[] mem = new Interval[ regs.length ];
+		final boolean[] pending = new boolean[ regs.length ];
+		for( int r = 0; r < regs.length; r++ ) regs[r] = mem[r] = Interval.of( 0 );
+		
+		for( final Instr in : program ) {
+			// the memory is observed and can be changed during a yield
+			if( in instanceof YieldInstruction ) {
+				for( int r = 0; r < regs.length; r++ ) {
+					materialise( prog, r, regs, mem, pending );
+					regs[r] = mem[r] = Interval.ANY;
+				}
+				prog.add( in );
+				continue;
+			}
+			
+			final MemRegister dst = in.getArgument( 0 ).getRegister( );
+			final int a = dst.ordinal( );
+			if( in instanceof InputInstr ) {
+				regs[a] = mem[a] = DIGITS;
+				pending[a] = false;
+				prog.add( in );
+				continue;
+			}
+			
+			// propagate a constant register argument as literal
+			final BinaryOperators op = ((BinaryOpInstr)in).getOperator( );
+			IArg arg = in.getArgument( 1 );
+			final boolean self = !arg.isLiteral( ) && arg.getRegister( ) == dst;
+			final Interval b = arg.isLiteral( ) ? Interval.of( arg.getLiteral( ) ) : regs[ arg.getRegister( ).ordinal( ) ];
+			if( !arg.isLiteral( ) && b.isConstant( ) ) arg = new IArg( b.min );
+			
+			// determine the resulting range
+			Interval res;
+			try {
+				res = self && op == BinaryOperators.Equals ? Interval.of( 1 ) : apply( op, regs[a], b );
+			} catch( ArithmeticException e ) {
+				// surely divides by zero, leave it to fail at run time
+				materialise( prog, a, regs, mem, pending );
+				prog.add( new BinaryOpInstr( op, in.getArgument( 0 ), arg ) );
+				regs[a] = mem[a] = Interval.ANY;
+				continue;
+			}
+			
+			// a division that may fail has to stay, any other constant result
+			// is kept pending
+			final boolean mayfail = (op == BinaryOperators.Divide || op == BinaryOperators.Modulo) && b.contains( 0 );
+			if( res.isConstant( ) && !mayfail ) {
+				regs[a] = res;
+				pending[a] = true;
+				folded++;
+				continue;
+			}
+			
+			// remove instructions that leave the register unchanged
+			if( !mayfail && arg.isLiteral( ) && isIdentity( op, regs[a], arg.getLiteral( ) ) ) {
+				simplified++;
+				continue;
+			}
+			
+			materialise( prog, a, regs, mem, pending );
+			prog.add( new BinaryOpInstr( op, in.getArgument( 0 ), arg ) );
+			regs[a] = mem[a] = res;
+		}
+		
+		// the registers are observed at the end of the program
+		for( int r = 0; r < regs.length; r++ )
+			materialise( prog, r, regs, mem, pending );
+		
+		return prog;
+	}
+	
+	/**
+	 * Writes a pending constant value to the register, using the value that
+	 * is known to be in memory if possible
+	 * 
+	 * @param prog The program to add the instructions to
+	 * @param r The register ordinal
+	 * @param regs The register ranges
+	 * @param mem The ranges of the values in memory
+	 * @param pending The registers that have a pending constant
+	 */
+	private void materialise( final List<Instr> prog, final int r, final Interval[] regs, final Interval[] mem, final boolean[] pending ) {
+		if( !pending[r] ) return;
+		pending[r] = false;
+		
+		final int size = prog.size( );
+		final IArg reg = new IArg( MemRegister.values( )[r] );
+		final long value = regs[r].min;
+		if( mem[r].isConstant( ) && canSubtract( value, mem[r].min ) ) {
+			if( value != mem[r].min ) prog.add( new BinaryOpInstr( BinaryOperators.Add, reg, new IArg( value - mem[r].min ) ) );
+		} else {
+			prog.add( new BinaryOpInstr( BinaryOperators.Multiply, reg, new IArg( 0 ) ) );
+			if( value != 0 ) prog.add( new BinaryOpInstr( BinaryOperators.Add, reg, new IArg( value ) ) );
+		}
+		mem[r] = regs[r];
+		
+		// the added instructions are part of the net result of folding
+		folded -= prog.size( ) - size;
+	}
+	
+	/**
+	 * Determines the range of the result of a binary operation
+	 * 
+	 * @param op The operation
+	 * @param a The range of the first argument
+	 * @param b The range of the second argument
+	 * @return The range of the result
+	 * @throws ArithmeticException if the operation surely divides by zero
+	 */
+	private static Interval apply( final BinaryOperators op, final Interval a, final Interval b ) {
+		switch( op ) {
+			case Add: return a.add( b );
+			case Multiply: return a.mul( b );
+			case Divide: return a.div( b );
+			case Modulo: return a.mod( b );
+			case Equals: return a.eql( b );
+			
+			default:
+				throw new IllegalArgumentException( "Unsupported operation: " + op );
+		}
+	}
+	
+	/**
+	 * Checks if the operation with a literal leaves the register value
+	 * unchanged for every value in its range
+	 * 
+	 * @param op The operation
+	 * @param a The range of the register value
+	 * @param v The literal value
+	 * @return True if the operation is an identity on the range
+	 */
+	private static boolean isIdentity( final BinaryOperators op, final Interval a, final long v ) {
+		switch( op ) {
+			case Add: return v == 0;
+			case Multiply: return v == 1;
+			case Divide: return v == 1;
+			case Modulo: return v > 0 && a.min >= 0 && a.max < v;
+			case Equals: return v == 1 && a.min >= 0 && a.max <= 1;
+			
+			default:
+				return false;
+		}
+	}
+	
+	/**
+	 * @param a The value to subtract from
+	 * @param b The value to subtract
+	 * @return True if a - b does not overflow
+	 */
+	private static boolean canSubtract( final long a, final long b ) {
+		try {
+			Math.subtractExact( a, b );
+			return true;
+		} catch( ArithmeticException e ) {
+			return false;
+		}
+	}
+	
+	/**
+	 * Backward pass that removes instructions of which the result is never
+	 * read. All registers are considered read at yields and at the end.
+	 * 
+	 * @param program The program
+	 * @return The program without dead stores
+	 */
+	private List<Instr> removeDeadStores( final List<Instr> program ) {
+		final boolean[] live = new boolean[ MemRegister.values( ).length ];
+		for( int r = 0; r < live.length; r++ ) live[r] = true;
+		
+		final boolean[] keep = new boolean[ program.size( ) ];
+		int kept = 0;
+		for( int i = program.size( ) - 1; i >= 0; i-- ) {
+			final Instr in = program.get( i );
+			keep[i] = true;
+			
+			if( in instanceof YieldInstruction ) {
+				for( int r = 0; r < live.length; r++ ) live[r] = true;
+			} else if( in instanceof InputInstr ) {
+				// the input is always consumed, even if its value is not used
+				live[ in.getArgument( 0 ).getRegister( ).ordinal( ) ] = false;
+			} else {
+				final int a = in.getArgument( 0 ).getRegister( ).ordinal( );
+				final BinaryOperators op = ((BinaryOpInstr)in).getOperator( );
+				final IArg arg = in.getArgument( 1 );
+				final boolean mayfail = (op == BinaryOperators.Divide || op == BinaryOperators.Modulo) && (!arg.isLiteral( ) || arg.getLiteral( ) == 0);
+				if( !live[a] && !mayfail ) {
+					keep[i] = false;
+					deadstores++;
+					continue;
+				}
+				
+				// multiplying by zero does not read the register
+				live[a] = !(op == BinaryOperators.Multiply && arg.isLiteral( ) && arg.getLiteral( ) == 0);
+				if( !arg.isLiteral( ) ) live[ arg.getRegister( ).ordinal( ) ] = true;
+			}
+			kept++;
+		}
+		
+		final List<Instr> prog = new ArrayList<>( kept );
+		for( int i = 0; i < keep.length; i++ ) if( keep[i] ) prog.add( program.get( i ) );
+		return prog;
+	}
+	
+	/** @return The number of instructions before the last optimisation */
+	public int getInstructionsBefore( ) { return before; }
+	
+	/** @return The number of instructions after the last optimisation */
+	public int getInstructionsAfter( ) { return after; }
+	
+	/** @return The net number of instructions removed by constant folding */
+	public int getFolded( ) { return folded; }
+	
+	/** @return The number of identity instructions that were removed */
+	public int getSimplified( ) { return simplified; }
+	
+	/** @return The number of dead stores that were removed */
+	public int getDeadStores( ) { return deadstores; }
+	
+	/** @return The summary of the last optimisation */
+	@Override
+	public String toString( ) {
+		return "[Optimiser: " + before + " -> " + after + " instructions, folded: " + folded + ", simplified: " + simplified + ", dead stores: " + deadstores + "]";
+	}
+}
@@ -0,0 +1,217 @@
+package challenges.day24.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.instr.BinaryOpInstr;
+import challenges.day24.alu.instr.BinaryOperators;
+import challenges.day24.alu.instr.IArg;
+import challenges.day24.alu.instr.InputInstr;
+import challenges.day24.alu.instr.Instr;
+import challenges.day24.alu.mem.ALUMem;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Finds the largest or smallest valid serial for a NOMAD program by running
+ * it one input block at a time. A yield instruction is inserted before every
+ * input instruction but the first, so that the ALU pauses after each digit.
+ * From every paused state all digits are tried by resuming the ALU from that
+ * state. States that cannot lead to a valid serial are memoised by their
+ * block index and Z register value, so they are never explored twice.
+ * 
+ * This requires that the Z register is the only state that is carried from
+ * one block to the next, which is checked when the program is loaded.
+ * 
+ * @author Joris
+ */
+public class MemoSolver {
+	/** The ALU that runs the program with yields */
+	private final ALU alu;
+	
+	/** The instruction pointer of the yield that precedes each block */
+	private final int[] yieldips;
+	
+	/** The memo of dead end states */
+	private final StateMemo memo;
+	
+	/** The memory that is reused for every block execution */
+	private final ALUMem mem;
+	
+	/** The digits of the serial that is being constructed */
+	private final char[] serial;
+	
+	/** The number of blocks that have been executed in the last search */
+	private long blockruns;
+	
+	/**
+	 * Creates a new solver
+	 * 
+	 * @param program The NOMAD program
+	 * @param memo The memo to store dead end states in
+	 * @param compile True to compile the program into bytecode
+	 */
+	public MemoSolver( final List<String> program, final StateMemo memo, final boolean compile ) {
+		// insert a yield before every input instruction but the first
+		final List<String> prog = new ArrayList<>( program.size( ) + 14 );
+		final List<Integer> yields = new ArrayList<>( );
+		boolean first = true;
+		for( final String s : program ) {
+			if( s.trim( ).toLowerCase( ).startsWith( "inp" ) ) {
+				if( !first ) {
+					yields.add( prog.size( ) );
+					prog.add( "yield" );
+				}
+				first = false;
+			}
+			prog.add( s );
+		}
+		
+		alu = new ALU( );
+		alu.loadProgram( prog );
+		checkBlockState( alu.getProgram( ) );
+		if( compile ) alu.compile( );
+		
+		yieldips = new int[ yields.size( ) ];
+		for( int i = 0; i < yieldips.length; i++ ) yieldips[i] = yields.get( i );
+		
+		this.memo = memo;
+		mem = new ALUMem( MemRegister.values( ) );
+		serial = new char[ yieldips.length + 1 ];
+	}
+	
+	/**
+	 * Checks that every block, i.e. the instructions from one input
+	 * instruction up to the next, writes the W, X and Y registers before
+	 * reading them. The Z register is then the only state that carries over
+	 * between blocks.
+	 * 
+	 * @param program The parsed program
+	 * @throws IllegalArgumentException if a block depends on more than Z
+	 */
+	private static void checkBlockState( final List<Instr> program ) {
+		final boolean[] written = new boolean[ MemRegister.values( ).length ];
+		boolean started = false;
+		for( final Instr in : program ) {
+			if( in instanceof InputInstr ) {
+				started = true;
+				for( int r = 0; r < written.length; r++ ) written[r] = false;
+				written[ MemRegister.Z.ordinal( ) ] = true;
+			} else if( started && in instanceof BinaryOpInstr ) {
+				// multiplying by zero does not depend on the register value
+				final IArg arg = in.getArgument( 1 );
+				final boolean clear = ((BinaryOpInstr)in).getOperator( ) == BinaryOperators.Multiply && arg.isLiteral( ) && arg.getLiteral( ) == 0;
+				if( !clear ) checkWritten( written, in.getArgument( 0 ) );
+				checkWritten( written, arg );
+			}
+			
+			if( in.getArgumentCount( ) > 0 ) written[ in.getArgument( 0 ).getRegister( ).ordinal( ) ] = true;
+		}
+	}
+	
+	/**
+	 * Checks that the argument is a literal or a register that has been
+	 * written in the current block
+	 * 
+	 * @param written The registers written in the current block
+	 * @param arg The argument that is read
+	 * @throws IllegalArgumentException if the register was not yet written
+	 */
+	private static void checkWritten( final boolean[] written, final IArg arg ) {
+		if( arg.isLiteral( ) || written[ arg.getRegister( ).ordinal( ) ] ) return;
+		throw new IllegalArgumentException( "Register " + arg.getRegister( ) + " carries state between input blocks" );
+	}
+	
+	/** @return The largest valid serial, or null if there is none */
+	public String findLargest( ) {
+		return find( false );
+	}
+	
+	/** @return The smallest valid serial, or null if there is none */
+	public String findSmallest( ) {
+		return find( true );
+	}
+	
+	/**
+	 * Searches the serials depth-first in ascending or descending order, the
+	 * first valid serial found is therefore the smallest or largest. The memo
+	 * is cleared before the search, as dead ends do not depend on the order
+	 * but its statistics should reflect a single search.
+	 * 
+	 * @param ascending True to find the smallest valid serial
+	 * @return The first valid serial in the search order, null if none
+	 */
+	private String find( final boolean ascending ) {
+		memo.clear( );
+		blockruns = 0;
+		return search( 0, 0, ascending ) ? new String( serial ) : null;
+	}
+	
+	/**
+	 * Tries every digit for the given block
+	 * 
+	 * @param block The index of the block, i.e. the serial digit
+	 * @param z The value of the Z register at the start of the block
+	 * @param ascending True to try digits in ascending order
+	 * @return True if a valid serial was found from this state
+	 */
+	private boolean search( final int block, final long z, final boolean ascending ) {
+		if( memo.contains( block, z ) ) return false;
+		
+		for( int i = 0; i < 9; i++ ) {
+			final int digit = ascending ? 1 + i : 9 - i;
+			blockruns++;
+			
+			// run the block from the current state with only this digit as input
+			final ALUMem res;
+			try {
+				res = runBlock( block, z, digit );
+			} catch( ArithmeticException e ) {
+				// the program fails on this digit
+				alu.stop( );
+				continue;
+			}
+			
+			final long nextz = res.read( MemRegister.Z );
+			final boolean found = alu.isYielded( ) ? search( block + 1, nextz, ascending ) : nextz == 0;
+			if( found ) {
+				serial[ block ] = (char)('0' + digit);
+				return true;
+			}
+		}
+		
+		memo.store( block, z );
+		return false;
+	}
+	
+	/**
+	 * Runs a single block of the program
+	 * 
+	 * @param block The block index
+	 * @param z The value of the Z register at the start of the block
+	 * @param digit The input digit
+	 * @return The memory after the block, upon yield or termination
+	 */
+	private ALUMem runBlock( final int block, final long z, final int digit ) {
+		// stop the previous run so the ALU accepts a new state
+		if( alu.isYielded( ) ) alu.stop( );
+		
+		final String input = String.valueOf( digit );
+		if( block == 0 ) return alu.run( input );
+		
+		for( final MemRegister r : MemRegister.values( ) ) mem.write( r, 0 );
+		mem.write( MemRegister.Z, z );
+		mem.setInput( input );
+		return alu.resume( yieldips[ block - 1 ], mem );
+	}
+	
+	/** @return The number of blocks executed in the last search */
+	public long getBlockRuns( ) {
+		return blockruns;
+	}
+	
+	/** @return The memo of dead end states */
+	public StateMemo getMemo( ) {
+		return memo;
+	}
+}
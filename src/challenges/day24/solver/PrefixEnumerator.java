@@ -0,0 +1,141 @@
+package challenges.day24.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import challenges.day24.alu.ALU;
+import challenges.day24.alu.ALUSnapshot;
+import challenges.day24.alu.mem.ALUMem;
+import challenges.day24.alu.mem.MemRegister;
+
+/**
+ * Enumerates serials in a prefix tree. A yield instruction is inserted before
+ * every input instruction, so that the ALU pauses right before reading each
+ * digit. The state at each pause is saved in a snapshot and every digit is
+ * tried by restoring that snapshot, hence the instructions for a shared
+ * prefix of serials are only executed once instead of once per serial.
+ * 
+ * @author Joris
+ */
+public class PrefixEnumerator {
+	/** The inputs for every digit */
+	private static final int[][] DIGITS = { { 0 }, { 1 }, { 2 }, { 3 }, { 4 }, { 5 }, { 6 }, { 7 }, { 8 }, { 9 } };
+	
+	/** The ALU that runs the program with yields */
+	private final ALU alu;
+	
+	/** The number of digits in a serial */
+	private final int length;
+	
+	/** The snapshot of the state before each digit */
+	private final ALUSnapshot[] states;
+	
+	/** The digits of the serial that is being enumerated */
+	private final char[] serial;
+	
+	/** The number of blocks that have been executed in the last enumeration */
+	private long blockruns;
+	
+	/**
+	 * Creates a new enumerator
+	 * 
+	 * @param program The NOMAD program
+	 * @param compile True to compile the program into bytecode
+	 */
+	public PrefixEnumerator( final List<String> program, final boolean compile ) {
+		// insert a yield before every input instruction
+		final List<String> prog = new ArrayList<>( program.size( ) + 14 );
+		int inputs = 0;
+		for( final String s : program ) {
+			if( s.trim( ).toLowerCase( ).startsWith( "inp" ) ) {
+				prog.add( "yield" );
+				inputs++;
+			}
+			prog.add( s );
+		}
+		
+		alu = new ALU( );
+		alu.loadProgram( prog );
+		if( compile ) alu.compile( );
+		
+		length = inputs;
+		states = new ALUSnapshot[ length ];
+		for( int i = 0; i < length; i++ ) states[i] = new ALUSnapshot( );
+		serial = new char[ length ];
+	}
+	
+	/**
+	 * Enumerates all serials that start with the given prefix and have only
+	 * digits 1-9 after that. The visitor is called for every serial, in
+	 * ascending order.
+	 * 
+	 * @param prefix The fixed first digits of the serials
+	 * @param visitor The visitor that is called for every serial
+	 * @return The number of serials enumerated
+	 */
+	public long enumerate( final String prefix, final SerialVisitor visitor ) {
+		if( prefix.length( ) > length ) throw new IllegalArgumentException( "The prefix is longer than the serial" );
+		blockruns = 0;
+		
+		// stop a previous run that was not completed, either because it yielded
+		// or because the program failed on a digit
+		if( alu.isRunning( ) ) alu.stop( );
+		
+		// run the program up to the first input, then feed the prefix
+		ALUMem mem = alu.run( "" );
+		for( int i = 0; i < prefix.length( ); i++ ) {
+			serial[i] = prefix.charAt( i );
+			mem.setInput( prefix.substring( i, i + 1 ) );
+			mem = alu.cont( );
+			blockruns++;
+		}
+		
+		// a complete serial as prefix
+		if( !alu.isYielded( ) ) {
+			visitor.visit( serial, mem.read( MemRegister.Z ) );
+			return 1;
+		}
+		
+		alu.snapshot( states[ prefix.length( ) ] );
+		return enumerate( prefix.length( ), visitor );
+	}
+	
+	/**
+	 * Tries every digit from the state before the given digit index
+	 * 
+	 * @param index The index of the digit
+	 * @param visitor The visitor for every complete serial
+	 * @return The number of serials enumerated
+	 */
+	private long enumerate( final int index, final SerialVisitor visitor ) {
+		long count = 0;
+		for( int d = 1; d <= 9; d++ ) {
+			serial[ index ] = (char)('0' + d);
+			
+			// continue from the saved state with this digit
+			alu.restore( states[ index ] );
+			alu.mem( ).setInput( DIGITS[d] );
+			final ALUMem mem = alu.cont( );
+			blockruns++;
+			
+			if( alu.isYielded( ) ) {
+				alu.snapshot( states[ index + 1 ] );
+				count += enumerate( index + 1, visitor );
+			} else {
+				visitor.visit( serial, mem.read( MemRegister.Z ) );
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	/** @return The number of digits in a serial */
+	public int getLength( ) {
+		return length;
+	}
+	
+	/** @return The number of blocks executed in the last enumeration */
+	public long getBlockRuns( ) {
+		return blockruns;
+	}
+}
@@ -0,0 +1,16 @@
+package challenges.day24.solver;
+
+/**
+ * Callback for every serial that is enumerated
+ * 
+ * @author Joris
+ */
+public interface SerialVisitor {
+	/**
+	 * Visits a single serial
+	 * 
+	 * @param serial The digits of the serial, only valid during the call
+	 * @param z The value of the Z register after running the program
+	 */
+	public void visit( final char[] serial, final long z );
+}
@@ -0,0 +1,179 @@
+package challenges.day24.solver;
+
+/**
+ * Bounded memo of ALU states from which no valid serial can be completed.
+ * A state is identified by the index of the input block that is about to be
+ * executed and the value of the Z register at that point.
+ * 
+ * The table is organised in buckets of a fixed number of entries and evicts
+ * the least recently used entry of a full bucket, so that its memory use is
+ * capped. Evicting an entry only means the state may be explored again, it
+ * never affects the result of the search.
+ * 
+ * @author Joris
+ */
+public class StateMemo {
+	/** The number of entries per bucket */
+	private static final int WAYS = 4;
+	
+	/** The number of bytes used per entry */
+	public static final int ENTRY_BYTES = 8 + 4 + 8;
+	
+	/** The Z register value per entry */
+	private final long[] zs;
+	
+	/** The block index per entry */
+	private final int[] blocks;
+	
+	/** The last time the entry was used, 0 for empty entries */
+	private final long[] used;
+	
+	/** The bit mask to map a key onto its bucket */
+	private final int bucketmask;
+	
+	/** The logical clock that is used to determine least recently used entries */
+	private long clock;
+	
+	/** The number of entries currently stored */
+	private int size;
+	
+	/** The number of lookups */
+	private long lookups;
+	
+	/** The number of lookups that found the state */
+	private long hits;
+	
+	/** The number of entries that have been evicted */
+	private long evictions;
+	
+	/**
+	 * Creates a new memo that holds at most the specified number of entries.
+	 * The capacity is rounded up to the next power of two.
+	 * 
+	 * @param capacity The maximum number of entries to store
+	 */
+	public StateMemo( final int capacity ) {
+		if( capacity < WAYS ) throw new IllegalArgumentException( "The memo capacity should be at least " + WAYS );
+		
+		// round up to the next power of two number of buckets
+		int buckets = 1;
+		while( buckets * WAYS < capacity ) buckets <<= 1;
+		bucketmask = buckets - 1;
+		
+		zs = new long[ buckets * WAYS ];
+		blocks = new int[ buckets * WAYS ];
+		used = new long[ buckets * WAYS ];
+		clear( );
+	}
+	
+	/**
+	 * Creates a memo that uses at most the given amount of memory
+	 * 
+	 * @param bytes The memory cap in bytes
+	 * @return The memo
+	 */
+	public static StateMemo withMemoryCap( final long bytes ) {
+		// round down so that the power of two capacity stays within the cap
+		int capacity = WAYS;
+		while( (long)capacity * 2 * ENTRY_BYTES <= bytes && capacity < (1 << 30) ) capacity <<= 1;
+		return new StateMemo( capacity );
+	}
+	
+	/**
+	 * Checks if the state is known to be a dead end
+	 * 
+	 * @param block The index of the block
+	 * @param z The value of the Z register at the start of the block
+	 * @return True if the state has been stored before
+	 */
+	public boolean contains( final int block, final long z ) {
+		lookups++;
+		final int bucket = bucketOf( block, z ) * WAYS;
+		for( int i = bucket; i < bucket + WAYS; i++ ) {
+			if( used[i] != 0 && zs[i] == z && blocks[i] == block ) {
+				used[i] = ++clock;
+				hits++;
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Stores the state as dead end
+	 * 
+	 * @param block The index of the block
+	 * @param z The value of the Z register at the start of the block
+	 */
+	public void store( final int block, final long z ) {
+		final int bucket = bucketOf( block, z ) * WAYS;
+		clock++;
+		
+		// find an empty or the least recently used slot in the bucket
+		int evict = bucket;
+		for( int i = bucket; i < bucket + WAYS; i++ ) {
+			if( used[i] != 0 && zs[i] == z && blocks[i] == block ) {
+				used[i] = clock;
+				return;
+			}
+			
+			if( used[i] < used[evict] ) evict = i;
+		}
+		
+		if( used[evict] != 0 ) evictions++; else size++;
+		zs[evict] = z;
+		blocks[evict] = block;
+		used[evict] = clock;
+	}
+	
+	/**
+	 * Maps the state onto a bucket index
+	 * 
+	 * @param block The block index
+	 * @param z The Z register value
+	 * @return The bucket index
+	 */
+	private int bucketOf( final int block, final long z ) {
+		// the high bits of the product depend on all bits of the key, fold
+		// them into the low bits that select the bucket
+		long h = (z * 31 + block) * 0x9E3779B97F4A7C15L;
+		h ^= h >>> 32;
+		return (int)(h ^ (h >>> 16)) & bucketmask;
+	}
+	
+	/**
+	 * Clears all entries and statistics
+	 */
+	public void clear( ) {
+		for( int i = 0; i < used.length; i++ ) used[i] = 0;
+		clock = 0;
+		size = 0;
+		lookups = 0;
+		hits = 0;
+		evictions = 0;
+	}
+	
+	/** @return The maximum number of entries in the memo */
+	public int capacity( ) { return zs.length; }
+	
+	/** @return The number of entries currently stored */
+	public int size( ) { return size; }
+	
+	/** @return The number of lookups */
+	public long getLookups( ) { return lookups; }
+	
+	/** @return The number of lookups that found the state */
+	public long getHits( ) { return hits; }
+	
+	/** @return The fraction of lookups that found the state */
+	public double getHitRate( ) { return lookups > 0 ? (double)hits / lookups : 0; }
+	
+	/** @return The number of entries that have been evicted */
+	public long getEvictions( ) { return evictions; }
+	
+	/** @return The description of the memo */
+	@Override
+	public String toString( ) {
+		return String.format( "[Memo: %d/%d (%d KB), hits: %d/%d (%.1f%%), evicted: %d]", size, capacity( ), (long)capacity( ) * ENTRY_BYTES / 1024, hits, lookups, getHitRate( ) * 100, evictions );
+	}
+}